@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2016 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.world;
+
+import javafx.application.Platform;
+import javafx.embed.swing.JFXPanel;
+
+import java.util.concurrent.CountDownLatch;
+
+
+/**
+ * Starts the JavaFX toolkit once per benchmark fork, the controls
+ * (e.g. the Tooltips of the countries) can't be created without it.
+ */
+final class FxToolkit {
+    private static volatile boolean started;
+
+
+    // ******************** Constructors **************************************
+    private FxToolkit() {}
+
+
+    // ******************** Methods *******************************************
+    static void start() {
+        if (started) { return; }
+        synchronized (FxToolkit.class) {
+            if (started) { return; }
+            new JFXPanel();
+            started = true;
+        }
+    }
+
+    /**
+     * Runs the given code on the FX application thread and waits for it,
+     * e.g. for code that takes snapshots.
+     */
+    static void runAndWait(final Runnable RUNNABLE) {
+        if (Platform.isFxApplicationThread()) {
+            RUNNABLE.run();
+            return;
+        }
+        CountDownLatch latch = new CountDownLatch(1);
+        Platform.runLater(() -> {
+            try {
+                RUNNABLE.run();
+            } finally {
+                latch.countDown();
+            }
+        });
+        try {
+            latch.await();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
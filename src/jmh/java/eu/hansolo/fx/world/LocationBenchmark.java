@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2016 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.world;
+
+import eu.hansolo.fx.world.World.Resolution;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Adding locations to a world, every invocation starts with an empty world.
+ * 100000 locations with their font icons and tooltips keep about 1.7 GB of heap alive.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class LocationBenchmark {
+    @Param({ "1000", "10000", "100000" })
+    public int count;
+
+    private World      world;
+    private Location[] locations;
+
+
+    // ******************** Setup *********************************************
+    @Setup(Level.Trial)
+    public void setup() {
+        FxToolkit.start();
+        world     = new World(Resolution.LO_RES);
+        locations = createLocations(count, 42);
+    }
+
+    /**
+     * Runs on the FX application thread which applies the batches of addLocationsAsync().
+     */
+    @Setup(Level.Invocation)
+    public void clear() {
+        FxToolkit.runAndWait(world::clearLocations);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        world.dispose();
+    }
+
+    static Location[] createLocations(final int COUNT, final long SEED) {
+        Random     random    = new Random(SEED);
+        Location[] locations = new Location[COUNT];
+        for (int i = 0 ; i < COUNT ; i++) {
+            locations[i] = new Location("Location " + i, random.nextDouble() * 170 - 85, random.nextDouble() * 360 - 180);
+        }
+        return locations;
+    }
+
+
+    // ******************** Benchmarks ****************************************
+    @Benchmark
+    public World addLocation() {
+        for (Location location : locations) { world.addLocation(location); }
+        return world;
+    }
+
+    @Benchmark
+    public World addLocations() {
+        world.addLocations(locations);
+        return world;
+    }
+
+    /**
+     * Includes the parallel creation of the icons and waits until the batch has been applied.
+     */
+    @Benchmark
+    public World addLocationsAsync() {
+        return world.addLocationsAsync(locations).join();
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2016 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.world;
+
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
+import javafx.scene.paint.Color;
+import org.kordamp.ikonli.materialdesign.MaterialDesign;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Drawing the locations of the whole map into a {@link MarkerLayer}. The icons are
+ * rendered into the {@link IconCache} during the setup, so the benchmark measures
+ * the query of the index, the image lookup and the draw calls.
+ * Runs on the FX application thread as the icon cache is not thread safe.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class MarkerBenchmark {
+    private static final Bounds AREA = new BoundingBox(0, 0, 1009, 665);
+
+    @Param({ "100000" })
+    public int count;
+
+    // number of distinct icon, size and color combinations
+    @Param({ "1", "64" })
+    public int looks;
+
+    private MarkerLayer markerLayer;
+
+
+    // ******************** Setup *********************************************
+    @Setup
+    public void setup() {
+        FxToolkit.start();
+        Location[]       locations = LocationBenchmark.createLocations(count, 42);
+        MaterialDesign[] icons     = { MaterialDesign.MDI_STAR, MaterialDesign.MDI_HEART, MaterialDesign.MDI_MAP_MARKER, MaterialDesign.MDI_AIRPLANE };
+        LocationIndex    index     = new LocationIndex();
+        for (int i = 0 ; i < count ; i++) {
+            int look = i % looks;
+            locations[i].setIconCode(icons[look % icons.length]);
+            locations[i].setIconSize(Location.MIN_ICON_SIZE + look / icons.length % 4 * 2);
+            locations[i].setColor(Color.hsb(look / 16 * 90, 1, 1));
+            index.add(locations[i]);
+        }
+        markerLayer = new MarkerLayer(index, new IconCache());
+        draw();
+    }
+
+
+    // ******************** Benchmarks ****************************************
+    @Benchmark
+    public MarkerLayer draw() {
+        FxToolkit.runAndWait(() -> markerLayer.draw(AREA, 1, MaterialDesign.MDI_MAP_MARKER, Color.RED));
+        return markerLayer;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2016 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.world;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Projection and distance calculation over a fixed set of random coordinates.
+ * These don't need the JavaFX toolkit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ProjectionBenchmark {
+    private static final int SIZE = 1000;
+
+    private Location[] locations;
+
+
+    // ******************** Setup *********************************************
+    @Setup
+    public void setup() {
+        locations = LocationBenchmark.createLocations(SIZE, 42);
+    }
+
+
+    // ******************** Benchmarks ****************************************
+    /**
+     * Projects {@value #SIZE} coordinates.
+     */
+    @Benchmark
+    public void latLonToXY(final Blackhole BLACKHOLE) {
+        for (Location location : locations) {
+            BLACKHOLE.consume(World.latLonToXY(location.getLatitude(), location.getLongitude()));
+        }
+    }
+
+    /**
+     * Calculates the distances between {@value #SIZE} pairs of locations.
+     */
+    @Benchmark
+    public double calcDistanceInMeter() {
+        double sum = 0;
+        for (int i = 1 ; i < SIZE ; i++) {
+            sum += locations[i].calcDistanceInMeter(locations[i - 1], locations[i]);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2016 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.world;
+
+import eu.hansolo.fx.world.World.Resolution;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Construction of a World and the country related operations on it.
+ * {@link #coldConstruction()} starts from an empty {@link GeometryCache} and
+ * includes loading the geometry, the other benchmarks keep the geometry of the
+ * resolution cached during a trial and measure the creation of the nodes,
+ * see {@link GeometryBenchmark} for loading the geometry itself.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class WorldBenchmark {
+
+    // ******************** Benchmarks ****************************************
+    /**
+     * Nothing else references the geometry, so every World loads it again
+     * and evicts it from the cache when it is disposed.
+     */
+    @Benchmark
+    public World coldConstruction(final ColdState STATE) {
+        World world = new World(STATE.resolution);
+        world.dispose();
+        return world;
+    }
+
+    @Benchmark
+    public World construction(final WorldState STATE) {
+        World world = new World(STATE.resolution);
+        world.dispose();
+        return world;
+    }
+
+    /**
+     * Creates the paths of all countries, a lazy world that is not part of
+     * a scene has no country nodes until they are requested.
+     */
+    @Benchmark
+    public Map<String, List<CountryPath>> createCountryPaths(final WorldState STATE) {
+        World world = new World(STATE.resolution, null, true, null);
+        Map<String, List<CountryPath>> countryPaths = world.getCountryPaths();
+        world.dispose();
+        return countryPaths;
+    }
+
+    /**
+     * Same as {@link #createCountryPaths(WorldState)} plus the bounds of every path, which
+     * builds the shape geometry of the nodes like the first layout pass of a shown world.
+     */
+    @Benchmark
+    public double createCountryShapes(final WorldState STATE) {
+        World  world = new World(STATE.resolution, null, true, null);
+        double width = 0;
+        for (List<CountryPath> paths : world.getCountryPaths().values()) {
+            for (CountryPath path : paths) { width += path.getBoundsInLocal().getWidth(); }
+        }
+        world.dispose();
+        return width;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public double[] getBoundsEmea(final WorldState STATE) {
+        return STATE.world.getBounds(BusinessRegion.EMEA.getCountries());
+    }
+
+    @Benchmark
+    public void setFillAndStroke(final WorldState STATE) {
+        STATE.world.setFillAndStroke();
+    }
+
+
+    // ******************** Inner Classes *************************************
+    @State(Scope.Benchmark)
+    public static class ColdState {
+        @Param({ "HI_RES", "LO_RES" })
+        public Resolution resolution;
+
+        @Setup
+        public void setup() {
+            FxToolkit.start();
+        }
+    }
+
+    /**
+     * Keeps a world, and with it the geometry of the resolution, alive during a trial.
+     */
+    @State(Scope.Benchmark)
+    public static class WorldState {
+        @Param({ "HI_RES", "LO_RES" })
+        public Resolution resolution;
+
+        private World world;
+
+        @Setup
+        public void setup() {
+            FxToolkit.start();
+            world = new World(resolution);
+        }
+
+        @TearDown
+        public void tearDown() {
+            world.dispose();
+        }
+    }
+}
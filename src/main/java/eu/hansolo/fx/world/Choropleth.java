@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2016 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.world;
+
+import javafx.scene.paint.Color;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+
+/**
+ * Colors the countries of a world by numeric values with a {@link ColorScale}.
+ * Values are kept sorted so that the class breaks can be recomputed cheaply.
+ * A changed value only recolors its own country unless it crosses one of the
+ * breaks (or the minimum or maximum of a continuous scale), in that case the
+ * breaks are recomputed and all countries are reclassified. Natural breaks
+ * depend on every value, so JENKS scales are reclassified on every change.
+ * The colors are applied with {@link World#applyColors(Map)}, so only changed
+ * fills are touched. All methods are thread safe.
+ */
+public class Choropleth {
+    private static final Country[] COUNTRIES = Country.values();
+    private        final World      world;
+    private        final ColorScale scale;
+    private        final Color      noDataColor;
+    private        final double[]   values;
+    private        final double[]   sorted;
+    private              int        size;
+    private              double[]   breaks;
+    private              long       breakUpdates;
+
+
+    // ******************** Constructors **************************************
+    public Choropleth(final World WORLD, final ColorScale SCALE) {
+        this(WORLD, SCALE, null);
+    }
+    /**
+     * @param WORLD         the world to color
+     * @param SCALE         the color scale
+     * @param NO_DATA_COLOR the color of countries without a value or null to use the fill color of the world
+     */
+    public Choropleth(final World WORLD, final ColorScale SCALE, final Color NO_DATA_COLOR) {
+        world       = WORLD;
+        scale       = SCALE;
+        noDataColor = NO_DATA_COLOR;
+        values      = new double[COUNTRIES.length];
+        sorted      = new double[COUNTRIES.length];
+        breaks      = new double[0];
+        Arrays.fill(values, Double.NaN);
+    }
+
+
+    // ******************** Methods *******************************************
+    public ColorScale getScale() { return scale; }
+
+    public synchronized double getValue(final Country COUNTRY) { return values[COUNTRY.ordinal()]; }
+
+    /**
+     * @param COUNTRY the country
+     * @param VALUE   the new value of the country, NaN to remove it
+     */
+    public synchronized void setValue(final Country COUNTRY, final double VALUE) {
+        Map<Country, Color> colors = new EnumMap<>(Country.class);
+        if (change(COUNTRY, VALUE, colors)) {
+            recompute();
+        } else if (!colors.isEmpty()) {
+            world.applyColors(colors);
+        }
+    }
+
+    /**
+     * Changes the values of several countries and applies the result in one batch.
+     * @param VALUES the new values by country, null or NaN to remove a value
+     */
+    public synchronized void setValues(final Map<Country, ? extends Number> VALUES) {
+        Map<Country, Color> colors    = new EnumMap<>(Country.class);
+        boolean             recompute = false;
+        for (Map.Entry<Country, ? extends Number> entry : VALUES.entrySet()) {
+            recompute |= change(entry.getKey(), null == entry.getValue() ? Double.NaN : entry.getValue().doubleValue(), colors);
+        }
+        if (recompute) {
+            recompute();
+        } else if (!colors.isEmpty()) {
+            world.applyColors(colors);
+        }
+    }
+
+    public void clearValue(final Country COUNTRY) { setValue(COUNTRY, Double.NaN); }
+
+    /**
+     * Takes the value of the given country from its {@link ValueObject}.
+     * @param COUNTRY the country
+     */
+    public void update(final Country COUNTRY) { setValue(COUNTRY, getNumericValue(COUNTRY)); }
+
+    /**
+     * Takes the values of all countries from their {@link ValueObject}s.
+     */
+    public synchronized void refresh() {
+        Map<Country, Double> numericValues = new EnumMap<>(Country.class);
+        for (Country country : COUNTRIES) { numericValues.put(country, getNumericValue(country)); }
+        setValues(numericValues);
+    }
+
+    /**
+     * @return the current class breaks, see {@link ColorScale#computeBreaks(double[], int)}
+     */
+    public synchronized double[] getBreaks() { return breaks.clone(); }
+
+    /**
+     * @return how often the breaks have been recomputed and all countries have been reclassified
+     */
+    public synchronized long getBreakUpdates() { return breakUpdates; }
+
+    /**
+     * @return true if the breaks have to be recomputed
+     */
+    private boolean change(final Country COUNTRY, final double VALUE, final Map<Country, Color> COLORS) {
+        final int    INDEX = COUNTRY.ordinal();
+        final double OLD   = values[INDEX];
+        final double NEW   = scale.accepts(VALUE) ? VALUE : Double.NaN;
+        if (Double.compare(OLD, NEW) == 0) { return false; }
+
+        boolean keepsBreaks = keepsBreaks(OLD, NEW);
+        if (!Double.isNaN(OLD)) { remove(OLD); }
+        if (!Double.isNaN(NEW)) { insert(NEW); }
+        values[INDEX] = NEW;
+        if (!keepsBreaks) { return true; }
+        if (scale.isContinuous() || Double.isNaN(OLD) || Double.isNaN(NEW) || scale.classify(OLD, breaks) != scale.classify(NEW, breaks)) {
+            COLORS.put(COUNTRY, getColor(NEW));
+        }
+        return false;
+    }
+
+    private boolean keepsBreaks(final double OLD, final double NEW) {
+        if (size == 0) { return false; }
+        switch (scale.getType()) {
+            case QUANTILE:
+                // adding or removing a value moves the ranks of the quantiles
+                if (Double.isNaN(OLD) || Double.isNaN(NEW)) { return false; }
+                return !isBreak(OLD) && !isBreak(NEW) && scale.classify(OLD, breaks) == scale.classify(NEW, breaks);
+            case JENKS:
+                return false;
+            default:
+                // the breaks only depend on the minimum and the maximum
+                return isInside(OLD) && isInside(NEW);
+        }
+    }
+
+    private boolean isInside(final double VALUE) { return Double.isNaN(VALUE) || (VALUE > sorted[0] && VALUE < sorted[size - 1]); }
+
+    private boolean isBreak(final double VALUE) { return Arrays.binarySearch(breaks, VALUE) >= 0; }
+
+    private void recompute() {
+        breaks = scale.computeBreaks(sorted, size);
+        breakUpdates++;
+        Map<Country, Color> colors = new EnumMap<>(Country.class);
+        for (Country country : COUNTRIES) { colors.put(country, getColor(values[country.ordinal()])); }
+        world.applyColors(colors);
+    }
+
+    private Color getColor(final double VALUE) { return Double.isNaN(VALUE) ? noDataColor : scale.getColor(VALUE, breaks); }
+
+    private void insert(final double VALUE) {
+        int index = Arrays.binarySearch(sorted, 0, size, VALUE);
+        if (index < 0) { index = -index - 1; }
+        System.arraycopy(sorted, index, sorted, index + 1, size - index);
+        sorted[index] = VALUE;
+        size++;
+    }
+
+    private void remove(final double VALUE) {
+        int index = Arrays.binarySearch(sorted, 0, size, VALUE);
+        if (index < 0) { return; }
+        System.arraycopy(sorted, index + 1, sorted, index, size - index - 1);
+        size--;
+    }
+
+    private static double getNumericValue(final Country COUNTRY) { return null == COUNTRY.getValue() ? Double.NaN : COUNTRY.getValue().getNumericValue(); }
+}
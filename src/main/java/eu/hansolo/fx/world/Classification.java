@@ -0,0 +1,324 @@
+/*
+ * Copyright (c) 2016 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.world;
+
+import javafx.scene.paint.Color;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * Computes class breaks of large sets of values, e.g. metrics of many locations.
+ * Breaks are the lower bounds of all classes but the first one in ascending order,
+ * the same as {@link ColorScale#computeBreaks(double[], int)}. NaN values are ignored.
+ * Everything is thread safe and meant to be used off the FX application thread,
+ * the result can be applied to a world in one batch with {@link #apply(World, Map, double[], Color...)}.
+ */
+public class Classification {
+    public enum Method { QUANTILE, EQUAL_INTERVAL, JENKS }
+
+    /**
+     * Jenks natural breaks are computed on a random sample of this size if there are more values.
+     */
+    public  static final int DEFAULT_SAMPLE_SIZE = 50_000;
+    private static final int PARALLEL_THRESHOLD  = 4096;
+    private static final long SAMPLE_SEED        = 42;
+
+
+    // ******************** Constructors **************************************
+    private Classification() {}
+
+
+    // ******************** Methods *******************************************
+    public static double[] computeBreaks(final double[] VALUES, final Method METHOD, final int CLASSES) {
+        return computeBreaks(VALUES, METHOD, CLASSES, ForkJoinPool.commonPool());
+    }
+    /**
+     * @param VALUES  the values, they won't be modified
+     * @param METHOD  the classification method
+     * @param CLASSES the number of classes
+     * @param POOL    the pool used to sort, sample and classify in parallel
+     * @return the class breaks, at most CLASSES - 1
+     */
+    public static double[] computeBreaks(final double[] VALUES, final Method METHOD, final int CLASSES, final ForkJoinPool POOL) {
+        if (CLASSES < 1) { throw new IllegalArgumentException("At least one class is needed"); }
+        // run in the pool so that the parallel streams and sorting use its workers
+        return POOL.submit(() -> {
+            double[] values = Arrays.stream(VALUES).parallel().filter(value -> !Double.isNaN(value)).toArray();
+            switch (METHOD) {
+                case EQUAL_INTERVAL:
+                    if (values.length == 0) { return new double[0]; }
+                    return equalIntervalBreaks(Arrays.stream(values).parallel().min().getAsDouble(), Arrays.stream(values).parallel().max().getAsDouble(), CLASSES);
+                case JENKS:
+                    if (values.length > DEFAULT_SAMPLE_SIZE) { values = sample(values, DEFAULT_SAMPLE_SIZE, SAMPLE_SEED); }
+                    Arrays.parallelSort(values);
+                    return jenksBreaks(values, values.length, CLASSES, POOL);
+                case QUANTILE:
+                default:
+                    Arrays.parallelSort(values);
+                    return quantileBreaks(values, values.length, CLASSES);
+            }
+        }).join();
+    }
+
+    /**
+     * Computes the breaks on the given pool, the values must not be modified until the future is done.
+     * @return a future that completes with the class breaks
+     */
+    public static CompletableFuture<double[]> computeBreaksAsync(final double[] VALUES, final Method METHOD, final int CLASSES, final ForkJoinPool POOL) {
+        return CompletableFuture.supplyAsync(() -> computeBreaks(VALUES, METHOD, CLASSES, POOL), POOL);
+    }
+
+    /**
+     * @param SORTED  the values in ascending order without NaN
+     * @param SIZE    the number of values to use
+     * @param CLASSES the number of classes
+     * @return the value at the rank of each quantile
+     */
+    public static double[] quantileBreaks(final double[] SORTED, final int SIZE, final int CLASSES) {
+        if (SIZE == 0) { return new double[0]; }
+        double[] breaks = new double[CLASSES - 1];
+        for (int i = 1 ; i < CLASSES ; i++) { breaks[i - 1] = SORTED[(int) ((long) i * SIZE / CLASSES)]; }
+        return breaks;
+    }
+
+    public static double[] equalIntervalBreaks(final double MIN, final double MAX, final int CLASSES) {
+        double[] breaks = new double[CLASSES - 1];
+        for (int i = 1 ; i < CLASSES ; i++) { breaks[i - 1] = MIN + (MAX - MIN) * i / CLASSES; }
+        return breaks;
+    }
+
+    public static double[] jenksBreaks(final double[] SORTED, final int SIZE, final int CLASSES) {
+        return jenksBreaks(SORTED, SIZE, CLASSES, ForkJoinPool.commonPool());
+    }
+    /**
+     * Jenks natural breaks that minimize the sum of the squared deviations from
+     * the class means. The optimal split points of the dynamic programming are
+     * monotone, which allows to compute each class row by divide and conquer in
+     * O(n log n) instead of O(n^2), so the whole classification is O(k n log n).
+     * The rows are computed in parallel on the given pool.
+     * @param SORTED  the values in ascending order without NaN
+     * @param SIZE    the number of values to use
+     * @param CLASSES the number of classes
+     * @param POOL    the pool to compute the rows on
+     * @return the lower bounds of all classes but the first one, fewer if there are less values than classes
+     */
+    public static double[] jenksBreaks(final double[] SORTED, final int SIZE, final int CLASSES, final ForkJoinPool POOL) {
+        final int CLASS_COUNT = Math.min(CLASSES, SIZE);
+        if (CLASS_COUNT <= 1) { return new double[0]; }
+
+        // prefix sums of the values relative to the first one to reduce cancellation
+        final double OFFSET = SORTED[0];
+        final double[] SUM  = new double[SIZE + 1];
+        final double[] SUM2 = new double[SIZE + 1];
+        for (int i = 0 ; i < SIZE ; i++) {
+            double value = SORTED[i] - OFFSET;
+            SUM[i + 1]  = SUM[i] + value;
+            SUM2[i + 1] = SUM2[i] + value * value;
+        }
+
+        double[] previous = new double[SIZE];
+        for (int i = 0 ; i < SIZE ; i++) { previous[i] = cost(SUM, SUM2, 0, i); }
+        int[][] splits = new int[CLASS_COUNT][];
+        for (int k = 1 ; k < CLASS_COUNT ; k++) {
+            double[] current = new double[SIZE];
+            splits[k] = new int[SIZE];
+            POOL.invoke(new JenksTask(SUM, SUM2, previous, current, splits[k], k, k, SIZE - 1, k, SIZE - 1));
+            previous = current;
+        }
+
+        double[] breaks = new double[CLASS_COUNT - 1];
+        int      end    = SIZE - 1;
+        for (int k = CLASS_COUNT - 1 ; k > 0 ; k--) {
+            int start = splits[k][end];
+            breaks[k - 1] = SORTED[start];
+            end = start - 1;
+        }
+        return breaks;
+    }
+
+    /**
+     * @param VALUES the values without NaN
+     * @param SIZE   the size of the sample
+     * @param SEED   the seed of the random generator, the same seed gives the same sample
+     * @return a random sample of the values without replacement
+     */
+    public static double[] sample(final double[] VALUES, final int SIZE, final long SEED) {
+        if (VALUES.length <= SIZE) { return VALUES.clone(); }
+        // reservoir sampling
+        SplittableRandom random = new SplittableRandom(SEED);
+        double[]         sample = Arrays.copyOf(VALUES, SIZE);
+        for (int i = SIZE ; i < VALUES.length ; i++) {
+            int index = random.nextInt(i + 1);
+            if (index < SIZE) { sample[index] = VALUES[i]; }
+        }
+        return sample;
+    }
+
+    /**
+     * @param VALUE  the value
+     * @param BREAKS the class breaks
+     * @return the class of the value, values that equal a break belong to the class above
+     */
+    public static int classify(final double VALUE, final double[] BREAKS) {
+        int low  = 0;
+        int high = BREAKS.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (BREAKS[mid] <= VALUE) { low = mid + 1; } else { high = mid; }
+        }
+        return low;
+    }
+
+    /**
+     * @param VALUES the values
+     * @param BREAKS the class breaks
+     * @param POOL   the pool to classify on
+     * @return the class of every value, -1 for NaN
+     */
+    public static int[] classify(final double[] VALUES, final double[] BREAKS, final ForkJoinPool POOL) {
+        final int[] CLASSES = new int[VALUES.length];
+        POOL.invoke(new ClassifyTask(VALUES, BREAKS, CLASSES, 0, VALUES.length));
+        return CLASSES;
+    }
+
+    /**
+     * Colors the given countries by their class and applies all colors to the world in one batch.
+     * @param WORLD  the world to color
+     * @param VALUES the values by country, countries without value (null or NaN) get the fill color of the world
+     * @param BREAKS the class breaks
+     * @param COLORS one color per class
+     */
+    public static void apply(final World WORLD, final Map<Country, ? extends Number> VALUES, final double[] BREAKS, final Color... COLORS) {
+        if (COLORS.length <= BREAKS.length) { throw new IllegalArgumentException(BREAKS.length + 1 + " colors are needed"); }
+        Map<Country, Color> colors = new EnumMap<>(Country.class);
+        for (Map.Entry<Country, ? extends Number> entry : VALUES.entrySet()) {
+            double value = null == entry.getValue() ? Double.NaN : entry.getValue().doubleValue();
+            colors.put(entry.getKey(), Double.isNaN(value) ? null : COLORS[classify(value, BREAKS)]);
+        }
+        WORLD.applyColors(colors);
+    }
+
+    /**
+     * @return the sum of the squared deviations from the mean of the values FROM..TO (inclusive)
+     */
+    private static double cost(final double[] SUM, final double[] SUM2, final int FROM, final int TO) {
+        int    count = TO - FROM + 1;
+        double sum   = SUM[TO + 1] - SUM[FROM];
+        return Math.max(0, SUM2[TO + 1] - SUM2[FROM] - sum * sum / count);
+    }
+
+
+    // ******************** Inner Classes *************************************
+    /**
+     * Computes the costs of one class row for the values FROM..TO knowing
+     * that their optimal split points are within OPT_FROM..OPT_TO.
+     */
+    private static class JenksTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final double[] sum;
+        private final double[] sum2;
+        private final double[] previous;
+        private final double[] current;
+        private final int[]    splits;
+        private final int      k;
+        private final int      from;
+        private final int      to;
+        private final int      optFrom;
+        private final int      optTo;
+
+
+        // ******************** Constructors **********************************
+        JenksTask(final double[] SUM, final double[] SUM2, final double[] PREVIOUS, final double[] CURRENT, final int[] SPLITS, final int K,
+                  final int FROM, final int TO, final int OPT_FROM, final int OPT_TO) {
+            sum      = SUM;
+            sum2     = SUM2;
+            previous = PREVIOUS;
+            current  = CURRENT;
+            splits   = SPLITS;
+            k        = K;
+            from     = FROM;
+            to       = TO;
+            optFrom  = OPT_FROM;
+            optTo    = OPT_TO;
+        }
+
+
+        // ******************** Methods ***************************************
+        @Override protected void compute() { compute(from, to, optFrom, optTo); }
+
+        private void compute(final int FROM, final int TO, final int OPT_FROM, final int OPT_TO) {
+            if (FROM > TO) { return; }
+            int    mid   = (FROM + TO) >>> 1;
+            double best  = Double.POSITIVE_INFINITY;
+            int    split = Math.max(OPT_FROM, k);
+            // the last class starts at split and ends at mid
+            for (int start = Math.max(OPT_FROM, k) ; start <= Math.min(mid, OPT_TO) ; start++) {
+                double cost = previous[start - 1] + cost(sum, sum2, start, mid);
+                if (cost < best) {
+                    best  = cost;
+                    split = start;
+                }
+            }
+            current[mid] = best;
+            splits[mid]  = split;
+            if (TO - FROM < PARALLEL_THRESHOLD) {
+                compute(FROM, mid - 1, OPT_FROM, split);
+                compute(mid + 1, TO, split, OPT_TO);
+            } else {
+                invokeAll(new JenksTask(sum, sum2, previous, current, splits, k, FROM, mid - 1, OPT_FROM, split),
+                          new JenksTask(sum, sum2, previous, current, splits, k, mid + 1, TO, split, OPT_TO));
+            }
+        }
+    }
+
+    private static class ClassifyTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final double[] values;
+        private final double[] breaks;
+        private final int[]    classes;
+        private final int      from;
+        private final int      to;
+
+
+        // ******************** Constructors **********************************
+        ClassifyTask(final double[] VALUES, final double[] BREAKS, final int[] CLASSES, final int FROM, final int TO) {
+            values  = VALUES;
+            breaks  = BREAKS;
+            classes = CLASSES;
+            from    = FROM;
+            to      = TO;
+        }
+
+
+        // ******************** Methods ***************************************
+        @Override protected void compute() {
+            if (to - from <= PARALLEL_THRESHOLD * 4) {
+                for (int i = from ; i < to ; i++) { classes[i] = Double.isNaN(values[i]) ? -1 : classify(values[i], breaks); }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ClassifyTask(values, breaks, classes, from, mid), new ClassifyTask(values, breaks, classes, mid, to));
+        }
+    }
+}
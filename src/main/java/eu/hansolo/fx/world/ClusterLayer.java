@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2016 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.world;
+
+import eu.hansolo.fx.world.LocationClusters.Cluster;
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
+import javafx.geometry.VPos;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Circle;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+import javafx.scene.text.TextAlignment;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+
+/**
+ * Shows the {@link LocationClusters} of the level that matches the current
+ * scale as count bubbles, clusters with one location are shown with the node
+ * of the location itself. Only the clusters in the visible area are part of the
+ * scene graph and only the nodes of clusters that changed are replaced.
+ */
+class ClusterLayer extends Pane {
+    private final Function<Location, Node> locationNodes;
+    private final Map<Long, Node>          nodes;
+    private       LocationClusters         clusters;
+    private       int                      level;
+    private       Color                    color;
+
+
+    // ******************** Constructors **************************************
+    /**
+     * @param LOCATION_NODES returns the node of a single location in map space
+     */
+    ClusterLayer(final Function<Location, Node> LOCATION_NODES) {
+        locationNodes = LOCATION_NODES;
+        nodes         = new HashMap<>();
+        level         = -1;
+        setManaged(false);
+        setPickOnBounds(false);
+    }
+
+
+    // ******************** Methods *******************************************
+    LocationClusters getClusters() { return clusters; }
+    void setClusters(final LocationClusters CLUSTERS) {
+        clusters = CLUSTERS;
+        clear();
+    }
+
+    /**
+     * Removes all nodes, e.g. to hand the nodes of the locations back to the world.
+     */
+    void clear() {
+        nodes.clear();
+        getChildren().clear();
+        level = -1;
+    }
+
+    /**
+     * @param AREA         the visible area in map space
+     * @param RENDER_SCALE the number of pixels per unit in map space
+     * @param COLOR        the color of the bubbles
+     */
+    void update(final Bounds AREA, final double RENDER_SCALE, final Color COLOR) {
+        if (null == clusters) { return; }
+        final int LEVEL = LocationClusters.getLevel(RENDER_SCALE);
+        if (LEVEL != level || !COLOR.equals(color)) {
+            clear();
+            level = LEVEL;
+            color = COLOR;
+        }
+        // clusters that changed on this level have to be recreated
+        Set<Long> changed = clusters.drainChanges(LEVEL);
+        for (Long key : changed) {
+            Node node = nodes.remove(key);
+            if (null != node) { getChildren().remove(node); }
+        }
+
+        // include the neighbouring cells as the centers of their clusters might be visible
+        final double    CELL    = LocationClusters.getCellSize(LEVEL);
+        Bounds          area    = new BoundingBox(AREA.getMinX() - CELL, AREA.getMinY() - CELL, AREA.getWidth() + 2 * CELL, AREA.getHeight() + 2 * CELL);
+        List<Cluster>   visible = clusters.getClusters(LEVEL, area);
+        Map<Long, Node> shown   = new HashMap<>(visible.size() * 2);
+        List<Node>      added   = new ArrayList<>();
+        for (Cluster cluster : visible) {
+            Node node = nodes.remove(cluster.getKey());
+            if (null == node) {
+                node = createNode(cluster);
+                if (null == node) continue;
+                added.add(node);
+            }
+            shown.put(cluster.getKey(), node);
+        }
+        // whatever is left has been scrolled out of the visible area
+        if (!nodes.isEmpty()) { getChildren().removeAll(nodes.values()); }
+        nodes.clear();
+        nodes.putAll(shown);
+        getChildren().addAll(added);
+    }
+
+    private Node createNode(final Cluster CLUSTER) {
+        if (CLUSTER.getCount() == 1) { return locationNodes.apply(CLUSTER.getLocation()); }
+        // the bubbles keep about the same size on screen within a level
+        final double SCALE  = 1.0 / (1 << level);
+        final double RADIUS = (10 + 4 * Math.log10(CLUSTER.getCount())) * SCALE;
+
+        Circle bubble = new Circle(CLUSTER.getX(), CLUSTER.getY(), RADIUS, color);
+        bubble.setOpacity(0.8);
+        bubble.setStroke(color.brighter());
+        bubble.setStrokeWidth(2 * SCALE);
+
+        Text count = new Text(CLUSTER.getCount() < 1000 ? Integer.toString(CLUSTER.getCount()) : (CLUSTER.getCount() / 1000) + "k");
+        count.setFont(Font.font(10 * SCALE));
+        count.setFill(color.getBrightness() > 0.6 ? Color.BLACK : Color.WHITE);
+        count.setTextOrigin(VPos.CENTER);
+        count.setTextAlignment(TextAlignment.CENTER);
+        count.setX(CLUSTER.getX() - count.getLayoutBounds().getWidth() * 0.5);
+        count.setY(CLUSTER.getY());
+        count.setMouseTransparent(true);
+
+        return new Group(bubble, count);
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2016 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.world;
+
+import javafx.scene.paint.Color;
+
+
+/**
+ * Maps numeric values to colors for a {@link Choropleth}.
+ * The continuous scales (LINEAR, LOG, DIVERGING) interpolate between the
+ * minimum and maximum of the data, the classified scales use one color per
+ * class. QUANTILE puts the same number of countries into each class,
+ * EQUAL_INTERVAL splits the range of the data into classes of the same size
+ * and JENKS uses natural breaks, see {@link Classification}.
+ */
+public class ColorScale {
+    public enum Type { LINEAR, LOG, QUANTILE, DIVERGING, EQUAL_INTERVAL, JENKS }
+
+    private final Type    type;
+    private final Color[] colors;
+    private final double  midpoint;
+
+
+    // ******************** Constructors **************************************
+    private ColorScale(final Type TYPE, final double MIDPOINT, final Color... COLORS) {
+        if (COLORS.length < 2) { throw new IllegalArgumentException("A color scale needs at least two colors"); }
+        type     = TYPE;
+        colors   = COLORS.clone();
+        midpoint = MIDPOINT;
+    }
+
+
+    // ******************** Methods *******************************************
+    public static ColorScale linear(final Color FROM, final Color TO) { return new ColorScale(Type.LINEAR, 0, FROM, TO); }
+
+    /**
+     * Interpolates on the logarithm of the values, values &lt;= 0 are treated as missing.
+     * @param FROM color of the minimum
+     * @param TO   color of the maximum
+     * @return a logarithmic color scale
+     */
+    public static ColorScale log(final Color FROM, final Color TO) { return new ColorScale(Type.LOG, 0, FROM, TO); }
+
+    /**
+     * @param COLORS one color per class in ascending order, the number of colors defines the number of classes
+     * @return a quantile color scale
+     */
+    public static ColorScale quantile(final Color... COLORS) { return new ColorScale(Type.QUANTILE, 0, COLORS); }
+
+    /**
+     * @param COLORS one color per class in ascending order, the number of colors defines the number of classes
+     * @return a color scale with classes of the same size
+     */
+    public static ColorScale equalInterval(final Color... COLORS) { return new ColorScale(Type.EQUAL_INTERVAL, 0, COLORS); }
+
+    /**
+     * @param COLORS one color per class in ascending order, the number of colors defines the number of classes
+     * @return a color scale with natural breaks
+     */
+    public static ColorScale jenks(final Color... COLORS) { return new ColorScale(Type.JENKS, 0, COLORS); }
+
+    /**
+     * @param LOW      color of the minimum
+     * @param MID      color of the midpoint
+     * @param HIGH     color of the maximum
+     * @param MIDPOINT the value in the middle of the scale, e.g. 0 for changes
+     * @return a diverging color scale
+     */
+    public static ColorScale diverging(final Color LOW, final Color MID, final Color HIGH, final double MIDPOINT) { return new ColorScale(Type.DIVERGING, MIDPOINT, LOW, MID, HIGH); }
+
+    public Type getType() { return type; }
+
+    public int getClassCount() { return isContinuous() ? 1 : colors.length; }
+
+    public double getMidpoint() { return midpoint; }
+
+    public boolean isContinuous() { return Type.LINEAR == type || Type.LOG == type || Type.DIVERGING == type; }
+
+    /**
+     * @param VALUE the value
+     * @return false if the value can't be shown with this scale
+     */
+    public boolean accepts(final double VALUE) { return !Double.isNaN(VALUE) && (Type.LOG != type || VALUE > 0); }
+
+    /**
+     * Computes the class breaks of the given data.
+     * For continuous scales these are the minimum and the maximum, for the
+     * classified scales the lower bound of every class but the first one.
+     * @param SORTED_VALUES the values in ascending order
+     * @param SIZE          the number of values to use
+     * @return the class breaks in ascending order
+     */
+    public double[] computeBreaks(final double[] SORTED_VALUES, final int SIZE) {
+        if (SIZE == 0) { return new double[0]; }
+        switch (type) {
+            case QUANTILE      : return Classification.quantileBreaks(SORTED_VALUES, SIZE, colors.length);
+            case EQUAL_INTERVAL: return Classification.equalIntervalBreaks(SORTED_VALUES[0], SORTED_VALUES[SIZE - 1], colors.length);
+            case JENKS         : return Classification.jenksBreaks(SORTED_VALUES, SIZE, colors.length);
+            default            : return new double[] { SORTED_VALUES[0], SORTED_VALUES[SIZE - 1] };
+        }
+    }
+
+    /**
+     * @param VALUE  the value
+     * @param BREAKS the breaks computed by {@link #computeBreaks(double[], int)}
+     * @return the class of the value, always 0 for continuous scales
+     */
+    public int classify(final double VALUE, final double[] BREAKS) { return isContinuous() ? 0 : Classification.classify(VALUE, BREAKS); }
+
+    /**
+     * @param VALUE  the value
+     * @param BREAKS the breaks computed by {@link #computeBreaks(double[], int)}
+     * @return the color of the given value
+     */
+    public Color getColor(final double VALUE, final double[] BREAKS) {
+        if (BREAKS.length == 0) { return colors[0]; }
+        switch (type) {
+            case QUANTILE      :
+            case EQUAL_INTERVAL:
+            case JENKS         : return colors[classify(VALUE, BREAKS)];
+            case LOG           : return interpolate(colors[0], colors[1], fraction(Math.log(VALUE), Math.log(BREAKS[0]), Math.log(BREAKS[1])));
+            case DIVERGING     :
+                if (VALUE < midpoint) { return interpolate(colors[0], colors[1], fraction(VALUE, Math.min(BREAKS[0], midpoint), midpoint)); }
+                return interpolate(colors[1], colors[2], fraction(VALUE, midpoint, Math.max(BREAKS[1], midpoint)));
+            case LINEAR        :
+            default            : return interpolate(colors[0], colors[1], fraction(VALUE, BREAKS[0], BREAKS[1]));
+        }
+    }
+
+    private static double fraction(final double VALUE, final double MIN, final double MAX) {
+        if (MAX <= MIN) { return 0; }
+        return Math.max(0, Math.min(1, (VALUE - MIN) / (MAX - MIN)));
+    }
+
+    private static Color interpolate(final Color FROM, final Color TO, final double FRACTION) {
+        // quantize to 256 steps so that tiny changes don't create new colors
+        double fraction = Math.round(FRACTION * 255) / 255.0;
+        return FROM.interpolate(TO, fraction);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2016 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.world;
+
+import javafx.scene.paint.Color;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+
+/**
+ * Collects the colors of several countries and applies them to a world
+ * in one pass when committed, see {@link World#beginColorUpdate()}.
+ * Instances are not thread safe but can be committed from any thread.
+ */
+public class ColorUpdate {
+    private final World               world;
+    private final Map<Country, Color> colors;
+
+
+    // ******************** Constructors **************************************
+    ColorUpdate(final World WORLD) {
+        world  = WORLD;
+        colors = new EnumMap<>(Country.class);
+    }
+
+
+    // ******************** Methods *******************************************
+    /**
+     * @param COUNTRY the country
+     * @param COLOR   the new color of the country or null to use the fill color of the world
+     * @return this update
+     */
+    public ColorUpdate set(final Country COUNTRY, final Color COLOR) {
+        colors.put(COUNTRY, COLOR);
+        return this;
+    }
+
+    public ColorUpdate set(final CRegion REGION, final Color COLOR) {
+        for (Country country : REGION.getCountries()) { colors.put(country, COLOR); }
+        return this;
+    }
+
+    public ColorUpdate reset(final Country COUNTRY) { return set(COUNTRY, null); }
+
+    public boolean isEmpty() { return colors.isEmpty(); }
+
+    /**
+     * Applies all collected colors to the world and clears this update so it can be reused.
+     */
+    public void commit() {
+        if (colors.isEmpty()) { return; }
+        world.applyColors(colors);
+        colors.clear();
+    }
+}
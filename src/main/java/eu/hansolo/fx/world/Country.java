@@ -20,6 +20,7 @@ import javafx.scene.paint.Color;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 
 /**
@@ -54,6 +55,7 @@ public enum Country {
 
     private ValueObject value;
     private Color       color;
+    private String      displayName;
 
 
     // ******************** Constructors **************************************
@@ -66,6 +68,18 @@ public enum Country {
     // ******************** Methods *******************************************
     public String getName() { return name(); }
 
+    /**
+     * @return the name of the country in the default locale, it is resolved once and cached afterwards
+     */
+    public String getDisplayName() {
+        if (null == displayName) { displayName = new Locale("", name()).getDisplayCountry(); }
+        return displayName;
+    }
+
+    /**
+     * The value and color of the enum are only the defaults that every {@link World}
+     * copies into its own {@link CountryDataModel} when it is created.
+     */
     public ValueObject getValue() { return value; }
     public void setValue(final ValueObject VALUE) { value = VALUE; }
 
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2016 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.world;
+
+import javafx.geometry.Bounds;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.transform.Scale;
+
+import java.util.Collection;
+import java.util.List;
+
+
+/**
+ * Draws the country paths of a world into one canvas instead of adding
+ * them to the scene graph. The canvas covers the given area in map space
+ * and its resolution matches the current zoom, so it stays sharp without
+ * having to be larger than the visible part of the map.
+ * The paths are only used as the model (geometry, fill, stroke and visibility).
+ */
+class CountryCanvas extends Canvas {
+    private static final double MAX_SIZE = 4096;
+    private        final Scale  scale;
+
+
+    // ******************** Constructors **************************************
+    CountryCanvas() {
+        scale = new Scale(1, 1, 0, 0);
+        getTransforms().add(scale);
+        setManaged(false);
+    }
+
+
+    // ******************** Methods *******************************************
+    /**
+     * @param PATHS        the paths of all countries
+     * @param AREA         the area in map space that should be covered by the canvas
+     * @param RENDER_SCALE the number of pixels per unit in map space
+     * @param STROKE_WIDTH the stroke width in map space
+     */
+    void draw(final Collection<List<CountryPath>> PATHS, final Bounds AREA, final double RENDER_SCALE, final double STROKE_WIDTH) {
+        if (AREA.getWidth() <= 0 || AREA.getHeight() <= 0) { return; }
+        // limit the size of the texture, the map will be a bit blurry when zoomed in that far
+        double renderScale = Math.min(RENDER_SCALE, Math.min(MAX_SIZE / AREA.getWidth(), MAX_SIZE / AREA.getHeight()));
+        setLayoutX(AREA.getMinX());
+        setLayoutY(AREA.getMinY());
+        setWidth(Math.ceil(AREA.getWidth() * renderScale));
+        setHeight(Math.ceil(AREA.getHeight() * renderScale));
+        scale.setX(1 / renderScale);
+        scale.setY(1 / renderScale);
+
+        GraphicsContext ctx = getGraphicsContext2D();
+        ctx.setTransform(1, 0, 0, 1, 0, 0);
+        ctx.clearRect(0, 0, getWidth(), getHeight());
+        ctx.setTransform(renderScale, 0, 0, renderScale, -AREA.getMinX() * renderScale, -AREA.getMinY() * renderScale);
+        ctx.setLineWidth(STROKE_WIDTH);
+        for (List<CountryPath> pathList : PATHS) {
+            for (CountryPath path : pathList) {
+                PathGeometry geometry = path.getGeometry();
+                if (!path.isVisible() || null == geometry || !AREA.intersects(geometry.getMinX(), geometry.getMinY(), geometry.getMaxX() - geometry.getMinX(), geometry.getMaxY() - geometry.getMinY())) continue;
+                ctx.beginPath();
+                for (int ring = 0 ; ring < geometry.getRingCount() ; ring++) {
+                    int start = geometry.getRingStart(ring);
+                    int end   = geometry.getRingEnd(ring);
+                    if (start == end) continue;
+                    ctx.moveTo(geometry.getX(start), geometry.getY(start));
+                    for (int point = start + 1 ; point < end ; point++) { ctx.lineTo(geometry.getX(point), geometry.getY(point)); }
+                    ctx.closePath();
+                }
+                ctx.setFill(path.getFill());
+                ctx.fill();
+                ctx.setStroke(path.getStroke());
+                ctx.stroke();
+            }
+        }
+    }
+
+    /**
+     * @param PATHS the paths of all countries
+     * @param X     x coordinate in map space
+     * @param Y     y coordinate in map space
+     * @return the visible path at the given point or null if there is none
+     */
+    static CountryPath pick(final Collection<List<CountryPath>> PATHS, final double X, final double Y) {
+        for (List<CountryPath> pathList : PATHS) {
+            for (CountryPath path : pathList) {
+                if (path.isVisible() && null != path.getGeometry() && path.getGeometry().contains(X, Y)) { return path; }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2016 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.world;
+
+import javafx.application.Platform;
+import javafx.scene.paint.Color;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+
+/**
+ * The data of the countries of one world, indexed by {@link Country#ordinal()}.
+ * All setters are lock free and can be called from any thread. Changes are
+ * collected in a dirty set and published as one immutable {@link Snapshot} per
+ * pulse on the FX application thread, no matter how many writes happened in between.
+ */
+public class CountryDataModel {
+    private static final Country[]                   COUNTRIES = Country.values();
+    private        final AtomicLongArray             values;
+    private        final AtomicReferenceArray<Color> colors;
+    private        final AtomicLongArray             dirty;
+    private        final AtomicBoolean               publishPending;
+    private        final Executor                    publisher;
+    private        final List<Consumer<Snapshot>>    listeners;
+    private        volatile Snapshot                 snapshot;
+
+
+    // ******************** Constructors **************************************
+    public CountryDataModel() {
+        this(Platform::runLater);
+    }
+    /**
+     * @param PUBLISHER the executor the snapshots are published on, the FX application thread by default
+     */
+    public CountryDataModel(final Executor PUBLISHER) {
+        values         = new AtomicLongArray(COUNTRIES.length);
+        colors         = new AtomicReferenceArray<>(COUNTRIES.length);
+        dirty          = new AtomicLongArray((COUNTRIES.length + 63) / 64);
+        publishPending = new AtomicBoolean(false);
+        publisher      = PUBLISHER;
+        listeners      = new CopyOnWriteArrayList<>();
+        long noValue   = Double.doubleToRawLongBits(Double.NaN);
+        for (int i = 0 ; i < COUNTRIES.length ; i++) { values.set(i, noValue); }
+        snapshot       = createSnapshot(new long[dirty.length()], 0);
+    }
+
+
+    // ******************** Methods *******************************************
+    /**
+     * Creates a model with the colors and numeric values that are currently set on the {@link Country} enum.
+     * @return a new model initialized from the country enum
+     */
+    public static CountryDataModel fromCountries() {
+        CountryDataModel model = new CountryDataModel();
+        for (Country country : COUNTRIES) {
+            model.colors.set(country.ordinal(), country.getColor());
+            if (null != country.getValue()) { model.values.set(country.ordinal(), Double.doubleToRawLongBits(country.getValue().getNumericValue())); }
+        }
+        model.snapshot = model.createSnapshot(new long[model.dirty.length()], 0);
+        return model;
+    }
+
+    /**
+     * @param COUNTRY the country
+     * @return the latest value of the country that might not have been published yet, NaN if it has none
+     */
+    public double getValue(final Country COUNTRY) { return Double.longBitsToDouble(values.get(COUNTRY.ordinal())); }
+    public void setValue(final Country COUNTRY, final double VALUE) {
+        long bits = Double.doubleToRawLongBits(VALUE);
+        if (values.getAndSet(COUNTRY.ordinal(), bits) != bits) { markDirty(COUNTRY.ordinal()); }
+    }
+
+    /**
+     * @param COUNTRY the country
+     * @return the latest color of the country that might not have been published yet, null if it uses the fill color
+     */
+    public Color getColor(final Country COUNTRY) { return colors.get(COUNTRY.ordinal()); }
+    /**
+     * @param COUNTRY the country
+     * @param COLOR   the color of the country or null to use the fill color of the world
+     */
+    public void setColor(final Country COUNTRY, final Color COLOR) {
+        Color former = colors.getAndSet(COUNTRY.ordinal(), COLOR);
+        if (null == former ? null != COLOR : !former.equals(COLOR)) { markDirty(COUNTRY.ordinal()); }
+    }
+
+    public void setColors(final Map<Country, Color> COLORS) {
+        for (Map.Entry<Country, Color> entry : COLORS.entrySet()) { setColor(entry.getKey(), entry.getValue()); }
+    }
+
+    /**
+     * @return the last published snapshot
+     */
+    public Snapshot getSnapshot() { return snapshot; }
+
+    /**
+     * @param LISTENER called with every published snapshot on the FX application thread
+     */
+    public void addSnapshotListener(final Consumer<Snapshot> LISTENER) { listeners.add(LISTENER); }
+    public void removeSnapshotListener(final Consumer<Snapshot> LISTENER) { listeners.remove(LISTENER); }
+
+    /**
+     * Publishes all pending changes right away instead of waiting for the next pulse.
+     * Must be called on the thread the snapshots are published on.
+     */
+    public void flush() {
+        // reset the flag before draining so that writes after the drain schedule a new publish
+        publishPending.set(false);
+        long[] changed = new long[dirty.length()];
+        int    count   = 0;
+        for (int i = 0 ; i < changed.length ; i++) {
+            changed[i] = dirty.getAndSet(i, 0);
+            count     += Long.bitCount(changed[i]);
+        }
+        if (count == 0) { return; }
+        snapshot = createSnapshot(changed, snapshot.getVersion() + 1);
+        for (Consumer<Snapshot> listener : listeners) { listener.accept(snapshot); }
+    }
+
+    private void markDirty(final int INDEX) {
+        final long BIT = 1L << (INDEX & 63);
+        final int  WORD = INDEX >>> 6;
+        long word;
+        do {
+            word = dirty.get(WORD);
+            if ((word & BIT) != 0) break;
+        } while (!dirty.compareAndSet(WORD, word, word | BIT));
+        if (publishPending.compareAndSet(false, true)) { publisher.execute(this::flush); }
+    }
+
+    private Snapshot createSnapshot(final long[] CHANGED, final long VERSION) {
+        double[] valueCopy = new double[COUNTRIES.length];
+        Color[]  colorCopy = new Color[COUNTRIES.length];
+        for (int i = 0 ; i < COUNTRIES.length ; i++) {
+            valueCopy[i] = Double.longBitsToDouble(values.get(i));
+            colorCopy[i] = colors.get(i);
+        }
+        return new Snapshot(VERSION, valueCopy, colorCopy, CHANGED);
+    }
+
+
+    // ******************** Inner Classes *************************************
+    /**
+     * Immutable state of all countries at the time it was published.
+     */
+    public static class Snapshot {
+        private final long     version;
+        private final double[] values;
+        private final Color[]  colors;
+        private final long[]   changed;
+
+
+        // ******************** Constructors **********************************
+        Snapshot(final long VERSION, final double[] VALUES, final Color[] COLORS, final long[] CHANGED) {
+            version = VERSION;
+            values  = VALUES;
+            colors  = COLORS;
+            changed = CHANGED;
+        }
+
+
+        // ******************** Methods ***************************************
+        public long getVersion() { return version; }
+
+        public double getValue(final Country COUNTRY) { return values[COUNTRY.ordinal()]; }
+
+        public Color getColor(final Country COUNTRY) { return colors[COUNTRY.ordinal()]; }
+
+        /**
+         * @param COUNTRY the country
+         * @return true if the value or color of the country changed since the previous snapshot
+         */
+        public boolean isChanged(final Country COUNTRY) { return (changed[COUNTRY.ordinal() >>> 6] & 1L << (COUNTRY.ordinal() & 63)) != 0; }
+
+        public List<Country> getChangedCountries() {
+            List<Country> countries = new ArrayList<>();
+            for (Country country : COUNTRIES) { if (isChanged(country)) { countries.add(country); } }
+            return Collections.unmodifiableList(countries);
+        }
+
+        public double[] getValues() { return Arrays.copyOf(values, values.length); }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2016 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.world;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Immutable outline of a country in map space with its bounds and
+ * area weighted centroid. Instances are shared between all worlds of
+ * the same resolution.
+ */
+public class CountryGeometry {
+    private final String             name;
+    private final List<PathGeometry> paths;
+    private final double             minX;
+    private final double             minY;
+    private final double             maxX;
+    private final double             maxY;
+    private final double             centroidX;
+    private final double             centroidY;
+
+
+    // ******************** Constructors **************************************
+    public CountryGeometry(final String NAME, final List<PathGeometry> PATHS) {
+        name  = NAME;
+        paths = Collections.unmodifiableList(new ArrayList<>(PATHS));
+
+        double x0   = Double.MAX_VALUE;
+        double y0   = Double.MAX_VALUE;
+        double x1   = -Double.MAX_VALUE;
+        double y1   = -Double.MAX_VALUE;
+        double area = 0;
+        double cx   = 0;
+        double cy   = 0;
+        for (PathGeometry path : PATHS) {
+            if (path.getPointCount() == 0) continue;
+            x0 = Math.min(x0, path.getMinX());
+            y0 = Math.min(y0, path.getMinY());
+            x1 = Math.max(x1, path.getMaxX());
+            y1 = Math.max(y1, path.getMaxY());
+            for (int ring = 0 ; ring < path.getRingCount() ; ring++) {
+                int start = path.getRingStart(ring);
+                int end   = path.getRingEnd(ring);
+                for (int i = start ; i < end ; i++) {
+                    int    j     = i + 1 == end ? start : i + 1;
+                    double cross = (double) path.getX(i) * path.getY(j) - (double) path.getX(j) * path.getY(i);
+                    area += cross;
+                    cx   += (path.getX(i) + path.getX(j)) * cross;
+                    cy   += (path.getY(i) + path.getY(j)) * cross;
+                }
+            }
+        }
+        if (x0 > x1) { x0 = y0 = x1 = y1 = 0; }
+        minX = x0;
+        minY = y0;
+        maxX = x1;
+        maxY = y1;
+        if (Math.abs(area) > 1e-9) {
+            centroidX = cx / (3 * area);
+            centroidY = cy / (3 * area);
+        } else {
+            centroidX = (minX + maxX) * 0.5;
+            centroidY = (minY + maxY) * 0.5;
+        }
+    }
+
+
+    // ******************** Methods *******************************************
+    public String getName() { return name; }
+
+    public List<PathGeometry> getPaths() { return paths; }
+
+    public double getMinX() { return minX; }
+    public double getMinY() { return minY; }
+    public double getMaxX() { return maxX; }
+    public double getMaxY() { return maxY; }
+
+    public double getCentroidX() { return centroidX; }
+    public double getCentroidY() { return centroidY; }
+}
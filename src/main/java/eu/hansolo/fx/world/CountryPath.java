@@ -17,39 +17,197 @@
 package eu.hansolo.fx.world;
 
 import javafx.scene.control.Tooltip;
+import javafx.scene.shape.ClosePath;
+import javafx.scene.shape.LineTo;
+import javafx.scene.shape.MoveTo;
+import javafx.scene.shape.Path;
+import javafx.scene.shape.PathElement;
 import javafx.scene.shape.SVGPath;
+import javafx.scene.shape.Shape;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 
 
 /**
+ * The elements of the path are created directly from the decoded {@link PathGeometry}
+ * without going through svg path data. CountryPath therefore is a Path and no longer
+ * an SVGPath, {@link #getContent()} and {@link #setContent(String)} are kept for svg
+ * path data, e.g. from the properties files.
  * Created by hansolo on 20.09.16.
  */
-public class CountryPath extends SVGPath {
+public class CountryPath extends Path {
     private final String  NAME;
-    private final Locale  LOCALE;
+    private final Country COUNTRY;
     private final Tooltip TOOLTIP;
+    private Locale        locale;
+    private PathGeometry  geometry;
+    private String        content;
 
 
     // ******************** Constructors **************************************
     public CountryPath(final String NAME) {
-        this(NAME, null);
+        this(NAME, (PathGeometry) null);
     }
     public CountryPath(final String NAME, final String CONTENT) {
-        super();
-        this.NAME    = NAME;
-        this.LOCALE  = new Locale("", NAME);
-        this.TOOLTIP = new Tooltip(LOCALE.getDisplayCountry());
-        Tooltip.install(this, TOOLTIP);
+        this(NAME, (PathGeometry) null);
         if (null == CONTENT) return;
         setContent(CONTENT);
     }
+    public CountryPath(final String NAME, final PathGeometry GEOMETRY) {
+        this(NAME, toCountry(NAME), GEOMETRY, true);
+    }
+    public CountryPath(final Country COUNTRY, final PathGeometry GEOMETRY) {
+        this(COUNTRY, GEOMETRY, true);
+    }
+    /**
+     * @param COUNTRY  the country of this path
+     * @param GEOMETRY the outline of this path or null
+     * @param TOOLTIP  if false no tooltip will be installed, e.g. when the world shows one shared tooltip
+     */
+    public CountryPath(final Country COUNTRY, final PathGeometry GEOMETRY, final boolean TOOLTIP) {
+        this(COUNTRY.getName(), COUNTRY, GEOMETRY, TOOLTIP);
+    }
+    private CountryPath(final String NAME, final Country COUNTRY, final PathGeometry GEOMETRY, final boolean TOOLTIP) {
+        super();
+        this.NAME    = NAME;
+        this.COUNTRY = COUNTRY;
+        if (TOOLTIP) {
+            this.TOOLTIP = new Tooltip(null == COUNTRY ? getLocale().getDisplayCountry() : COUNTRY.getDisplayName());
+            Tooltip.install(this, this.TOOLTIP);
+        } else {
+            this.TOOLTIP = null;
+        }
+        if (null == GEOMETRY) return;
+        setGeometry(GEOMETRY);
+    }
 
 
     // ******************** Methods *******************************************
     public String getName() { return NAME; }
 
-    public Locale getLocale() { return LOCALE; }
+    /**
+     * @return the country of this path or null if the name is not the iso code of a {@link Country}
+     */
+    public Country getCountry() { return COUNTRY; }
+
+    public Locale getLocale() {
+        if (null == locale) { locale = new Locale("", NAME); }
+        return locale;
+    }
 
+    /**
+     * @return the tooltip of this path or null if it has been created without one
+     */
     public Tooltip getTooltip() { return TOOLTIP; }
+
+    /**
+     * @return the outline this path has been created from or null if it has no outline
+     */
+    public PathGeometry getGeometry() { return geometry; }
+
+    /**
+     * Sets the outline of this path, one MoveTo per ring followed by a LineTo per point.
+     * @param GEOMETRY the outline of this path
+     */
+    public void setGeometry(final PathGeometry GEOMETRY) {
+        geometry = GEOMETRY;
+        content  = null;
+        List<PathElement> elements = new ArrayList<>(GEOMETRY.getPointCount() + GEOMETRY.getRingCount());
+        for (int ring = 0 ; ring < GEOMETRY.getRingCount() ; ring++) {
+            int start = GEOMETRY.getRingStart(ring);
+            int end   = GEOMETRY.getRingEnd(ring);
+            if (start == end) continue;
+            elements.add(new MoveTo(GEOMETRY.getX(start), GEOMETRY.getY(start)));
+            for (int point = start + 1 ; point < end ; point++) {
+                elements.add(new LineTo(GEOMETRY.getX(point), GEOMETRY.getY(point)));
+            }
+            elements.add(new ClosePath());
+        }
+        getElements().setAll(elements);
+    }
+
+    /**
+     * @return the svg path data of this path, written from its geometry if it has been created from one
+     */
+    public String getContent() {
+        if (null == content) { content = null == geometry ? "" : toContent(geometry); }
+        return content;
+    }
+
+    /**
+     * Sets the outline of this path from svg path data. Data that only contains M/L/H/V/Z
+     * commands is parsed into a {@link PathGeometry}, anything else (curves, arcs) is parsed
+     * by an SVGPath and is only drawn, it has no outline for the canvas and tile render modes.
+     * @param CONTENT svg path data
+     */
+    public void setContent(final String CONTENT) {
+        PathGeometry parsed = toGeometry(CONTENT);
+        if (null != parsed) {
+            setGeometry(parsed);
+        } else {
+            SVGPath svgPath = new SVGPath();
+            svgPath.setContent(CONTENT);
+            geometry = null;
+            getElements().setAll(((Path) Shape.union(svgPath, new Path())).getElements());
+        }
+        content = CONTENT;
+    }
+
+    private static String toContent(final PathGeometry GEOMETRY) {
+        StringBuilder content = new StringBuilder(GEOMETRY.getPointCount() * 16);
+        for (int ring = 0 ; ring < GEOMETRY.getRingCount() ; ring++) {
+            int start = GEOMETRY.getRingStart(ring);
+            int end   = GEOMETRY.getRingEnd(ring);
+            if (start == end) continue;
+            content.append('M');
+            appendPoint(content, GEOMETRY, start);
+            for (int point = start + 1 ; point < end ; point++) {
+                content.append('L');
+                appendPoint(content, GEOMETRY, point);
+            }
+            content.append('Z');
+        }
+        return content.toString();
+    }
+
+    private static void appendPoint(final StringBuilder CONTENT, final PathGeometry GEOMETRY, final int POINT) {
+        appendCoordinate(CONTENT, GEOMETRY.getX(POINT));
+        CONTENT.append(' ');
+        appendCoordinate(CONTENT, GEOMETRY.getY(POINT));
+    }
+
+    // the binary geometry is quantized to 1/1000 px, so three decimals are lossless
+    private static void appendCoordinate(final StringBuilder CONTENT, final float VALUE) {
+        long thousandths = Math.round(VALUE * 1000.0);
+        if (thousandths < 0) {
+            CONTENT.append('-');
+            thousandths = -thousandths;
+        }
+        CONTENT.append(thousandths / 1000);
+        int fraction = (int) (thousandths % 1000);
+        if (0 == fraction) return;
+        CONTENT.append('.');
+        if (fraction < 100) { CONTENT.append('0'); }
+        if (fraction < 10)  { CONTENT.append('0'); }
+        while (fraction % 10 == 0) { fraction /= 10; }
+        CONTENT.append(fraction);
+    }
+
+    private static PathGeometry toGeometry(final String CONTENT) {
+        try {
+            return PathGeometry.parse(CONTENT);
+        } catch (IllegalArgumentException exception) {
+            return null;
+        }
+    }
+
+    private static Country toCountry(final String NAME) {
+        try {
+            return Country.valueOf(NAME);
+        } catch (IllegalArgumentException exception) {
+            return null;
+        }
+    }
 }
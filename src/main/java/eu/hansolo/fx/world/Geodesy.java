@@ -0,0 +1,361 @@
+/*
+ * Copyright (c) 2016 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.world;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.stream.IntStream;
+
+
+/**
+ * Distances between many coordinates at once on a spherical earth.
+ * The coordinates are given as primitive arrays in degrees, the cosine of the
+ * latitudes is computed once per point instead of once per pair and large
+ * inputs are processed in parallel on the common fork join pool.
+ * {@link SpatialIndex} answers k nearest neighbour queries without comparing
+ * every query with every point.
+ */
+public class Geodesy {
+    /**
+     * HAVERSINE is exact on the sphere. EQUIRECTANGULAR projects both points on a
+     * plane that touches the sphere at their mean latitude, which is much faster and
+     * has a relative error below 0.01% for distances up to 100 km between -70 and 70 degrees
+     * latitude, but should not be used for long distances or close to the poles.
+     */
+    public enum Metric { HAVERSINE, EQUIRECTANGULAR }
+
+    public  static final double EARTH_RADIUS       = 6_371_000; // [m]
+    private static final double TO_RAD             = Math.PI / 180;
+    private static final int    PARALLEL_THRESHOLD = 1 << 16;
+
+
+    // ******************** Constructors **************************************
+    private Geodesy() {}
+
+
+    // ******************** Methods *******************************************
+    /**
+     * @return the great circle distance in meters
+     */
+    public static double distance(final double LAT_1, final double LON_1, final double LAT_2, final double LON_2) {
+        return haversine(LAT_1 * TO_RAD, LON_1 * TO_RAD, Math.cos(LAT_1 * TO_RAD), LAT_2 * TO_RAD, LON_2 * TO_RAD, Math.cos(LAT_2 * TO_RAD));
+    }
+
+    /**
+     * @return the approximated distance in meters, see {@link Metric#EQUIRECTANGULAR}
+     */
+    public static double equirectangularDistance(final double LAT_1, final double LON_1, final double LAT_2, final double LON_2) {
+        return equirectangular(LAT_1 * TO_RAD, LON_1 * TO_RAD, LAT_2 * TO_RAD, LON_2 * TO_RAD);
+    }
+
+    /**
+     * @return the distances in meters between all points of FROM and TO, row by row
+     */
+    public static double[] distanceMatrix(final double[] FROM_LATITUDES, final double[] FROM_LONGITUDES, final double[] TO_LATITUDES, final double[] TO_LONGITUDES) {
+        return distanceMatrix(FROM_LATITUDES, FROM_LONGITUDES, TO_LATITUDES, TO_LONGITUDES, Metric.HAVERSINE);
+    }
+    public static double[] distanceMatrix(final double[] FROM_LATITUDES, final double[] FROM_LONGITUDES, final double[] TO_LATITUDES, final double[] TO_LONGITUDES, final Metric METRIC) {
+        final long SIZE = (long) FROM_LATITUDES.length * TO_LATITUDES.length;
+        if (SIZE > Integer.MAX_VALUE - 8) { throw new IllegalArgumentException("The matrix would have " + SIZE + " entries, use a spatial index or split up the points"); }
+        double[] matrix = new double[(int) SIZE];
+        distanceMatrix(FROM_LATITUDES, FROM_LONGITUDES, TO_LATITUDES, TO_LONGITUDES, METRIC, matrix);
+        return matrix;
+    }
+    /**
+     * Computes the distances between all points of FROM and TO without allocating the result.
+     * @param FROM_LATITUDES  the latitudes of the rows
+     * @param FROM_LONGITUDES the longitudes of the rows
+     * @param TO_LATITUDES    the latitudes of the columns
+     * @param TO_LONGITUDES   the longitudes of the columns
+     * @param METRIC          how to compute the distances
+     * @param MATRIX          receives the distances in meters, the distance from FROM[i] to TO[j] is at i * TO.length + j
+     */
+    public static void distanceMatrix(final double[] FROM_LATITUDES, final double[] FROM_LONGITUDES, final double[] TO_LATITUDES, final double[] TO_LONGITUDES, final Metric METRIC, final double[] MATRIX) {
+        checkLengths(FROM_LATITUDES, FROM_LONGITUDES);
+        checkLengths(TO_LATITUDES, TO_LONGITUDES);
+        final int ROWS    = FROM_LATITUDES.length;
+        final int COLUMNS = TO_LATITUDES.length;
+        if ((long) ROWS * COLUMNS > MATRIX.length) { throw new IllegalArgumentException("The matrix needs " + (long) ROWS * COLUMNS + " entries"); }
+
+        final double[] TO_LAT = toRadians(TO_LATITUDES);
+        final double[] TO_LON = toRadians(TO_LONGITUDES);
+        final double[] TO_COS = cos(TO_LAT);
+        IntStream rows = IntStream.range(0, ROWS);
+        if ((long) ROWS * COLUMNS >= PARALLEL_THRESHOLD) { rows = rows.parallel(); }
+        rows.forEach(row -> {
+            final double LAT    = FROM_LATITUDES[row] * TO_RAD;
+            final double LON    = FROM_LONGITUDES[row] * TO_RAD;
+            final double COS    = Math.cos(LAT);
+            final int    OFFSET = row * COLUMNS;
+            if (Metric.HAVERSINE == METRIC) {
+                for (int column = 0 ; column < COLUMNS ; column++) { MATRIX[OFFSET + column] = haversine(LAT, LON, COS, TO_LAT[column], TO_LON[column], TO_COS[column]); }
+            } else {
+                for (int column = 0 ; column < COLUMNS ; column++) { MATRIX[OFFSET + column] = equirectangular(LAT, LON, TO_LAT[column], TO_LON[column]); }
+            }
+        });
+    }
+
+    private static double haversine(final double LAT_1, final double LON_1, final double COS_1, final double LAT_2, final double LON_2, final double COS_2) {
+        final double SIN_LAT = Math.sin((LAT_2 - LAT_1) * 0.5);
+        final double SIN_LON = Math.sin((LON_2 - LON_1) * 0.5);
+        final double A       = Math.min(1, SIN_LAT * SIN_LAT + COS_1 * COS_2 * SIN_LON * SIN_LON);
+        return 2 * EARTH_RADIUS * Math.asin(Math.sqrt(A));
+    }
+
+    private static double equirectangular(final double LAT_1, final double LON_1, final double LAT_2, final double LON_2) {
+        double deltaLon = Math.abs(LON_2 - LON_1);
+        if (deltaLon > Math.PI) { deltaLon = 2 * Math.PI - deltaLon; }
+        final double X = deltaLon * Math.cos((LAT_1 + LAT_2) * 0.5);
+        final double Y = LAT_2 - LAT_1;
+        return EARTH_RADIUS * Math.sqrt(X * X + Y * Y);
+    }
+
+    private static double[] toRadians(final double[] DEGREES) {
+        double[] radians = new double[DEGREES.length];
+        for (int i = 0 ; i < DEGREES.length ; i++) { radians[i] = DEGREES[i] * TO_RAD; }
+        return radians;
+    }
+
+    private static double[] cos(final double[] RADIANS) {
+        double[] cos = new double[RADIANS.length];
+        for (int i = 0 ; i < RADIANS.length ; i++) { cos[i] = Math.cos(RADIANS[i]); }
+        return cos;
+    }
+
+    private static void checkLengths(final double[] LATITUDES, final double[] LONGITUDES) {
+        if (LATITUDES.length != LONGITUDES.length) { throw new IllegalArgumentException("The latitudes and longitudes must have the same length"); }
+    }
+
+
+    // ******************** Inner Classes *************************************
+    /**
+     * Grid of latitude / longitude cells over a fixed set of points. A query visits the
+     * cells in rings around its own cell and stops as soon as no point of the next ring
+     * can be closer than the k nearest points found so far.
+     * The index is immutable and can be queried from any number of threads.
+     */
+    public static class SpatialIndex {
+        // below this number of points all of them are compared with the query
+        private static final int BRUTE_FORCE_SIZE = 64;
+        private final double[] latitudes;
+        private final double[] longitudes;
+        private final double[] cosines;
+        private final double   cellSize;
+        private final int      rows;
+        private final int      columns;
+        private final int[]    cellStarts;
+        private final int[]    cellPoints;
+
+
+        // ******************** Constructors **********************************
+        /**
+         * @param LATITUDES  the latitudes of the points in degrees
+         * @param LONGITUDES the longitudes of the points in degrees
+         */
+        public SpatialIndex(final double[] LATITUDES, final double[] LONGITUDES) {
+            checkLengths(LATITUDES, LONGITUDES);
+            final int SIZE = LATITUDES.length;
+            latitudes  = toRadians(LATITUDES);
+            longitudes = new double[SIZE];
+            for (int i = 0 ; i < SIZE ; i++) { longitudes[i] = normalize(LONGITUDES[i] * TO_RAD); }
+            cosines    = cos(latitudes);
+            // about two points per cell if they were evenly distributed, the columns exactly cover 360 degrees
+            columns    = (int) Math.ceil(360 / Math.max(0.1, Math.min(10, Math.sqrt(360.0 * 180.0 / Math.max(1, SIZE / 2)))));
+            cellSize   = 2 * Math.PI / columns;
+            rows       = (int) Math.ceil(Math.PI / cellSize);
+
+            // counting sort of the points by cell
+            int[] cells = new int[SIZE];
+            cellStarts  = new int[rows * columns + 1];
+            for (int i = 0 ; i < SIZE ; i++) {
+                cells[i] = row(latitudes[i]) * columns + column(longitudes[i]);
+                cellStarts[cells[i] + 1]++;
+            }
+            for (int cell = 0 ; cell < rows * columns ; cell++) { cellStarts[cell + 1] += cellStarts[cell]; }
+            int[] offsets = Arrays.copyOf(cellStarts, rows * columns);
+            cellPoints    = new int[SIZE];
+            for (int i = 0 ; i < SIZE ; i++) { cellPoints[offsets[cells[i]]++] = i; }
+        }
+
+
+        // ******************** Methods ***************************************
+        public static SpatialIndex of(final Collection<Location> LOCATIONS) {
+            double[] latitudes  = new double[LOCATIONS.size()];
+            double[] longitudes = new double[LOCATIONS.size()];
+            int      i          = 0;
+            for (Location location : LOCATIONS) {
+                latitudes[i]  = location.getLatitude();
+                longitudes[i] = location.getLongitude();
+                i++;
+            }
+            return new SpatialIndex(latitudes, longitudes);
+        }
+
+        public int size() { return latitudes.length; }
+
+        /**
+         * @param LATITUDE  the latitude of the query in degrees
+         * @param LONGITUDE the longitude of the query in degrees
+         * @param K         the number of neighbours
+         * @return the indices of the K closest points, the closest first
+         */
+        public int[] getNearest(final double LATITUDE, final double LONGITUDE, final int K) {
+            final int COUNT     = Math.max(0, Math.min(K, size()));
+            int[]     indices   = new int[COUNT];
+            double[]  distances = new double[COUNT];
+            nearest(LATITUDE, LONGITUDE, COUNT, indices, distances, 0);
+            return indices;
+        }
+
+        /**
+         * Finds the K nearest points of all queries in parallel.
+         * @param LATITUDES  the latitudes of the queries in degrees
+         * @param LONGITUDES the longitudes of the queries in degrees
+         * @param K          the number of neighbours per query
+         * @param INDICES    receives the indices of the neighbours, K per query and the closest first, -1 if there are less than K points
+         * @param DISTANCES  receives the distances in meters of the neighbours or null if they are not needed
+         */
+        public void getNearest(final double[] LATITUDES, final double[] LONGITUDES, final int K, final int[] INDICES, final double[] DISTANCES) {
+            checkLengths(LATITUDES, LONGITUDES);
+            if (K < 1) { throw new IllegalArgumentException("K must be at least 1"); }
+            if ((long) LATITUDES.length * K > INDICES.length || (null != DISTANCES && (long) LATITUDES.length * K > DISTANCES.length)) {
+                throw new IllegalArgumentException("The result arrays need " + (long) LATITUDES.length * K + " entries");
+            }
+            IntStream queries = IntStream.range(0, LATITUDES.length);
+            if (LATITUDES.length > 1) { queries = queries.parallel(); }
+            queries.forEach(query -> {
+                final double[] DISTANCE = null == DISTANCES ? new double[K] : DISTANCES;
+                final int      OFFSET   = null == DISTANCES ? 0 : query * K;
+                final int      FOUND    = nearest(LATITUDES[query], LONGITUDES[query], Math.min(K, size()), INDICES, DISTANCE, query * K, OFFSET);
+                for (int i = FOUND ; i < K ; i++) {
+                    INDICES[query * K + i]   = -1;
+                    DISTANCE[OFFSET + i]     = Double.NaN;
+                }
+            });
+        }
+
+        private int nearest(final double LATITUDE, final double LONGITUDE, final int K, final int[] INDICES, final double[] DISTANCES, final int OFFSET) {
+            return nearest(LATITUDE, LONGITUDE, K, INDICES, DISTANCES, OFFSET, OFFSET);
+        }
+        /**
+         * @return the number of neighbours that have been found
+         */
+        private int nearest(final double LATITUDE, final double LONGITUDE, final int K, final int[] INDICES, final double[] DISTANCES, final int INDEX_OFFSET, final int DISTANCE_OFFSET) {
+            if (K == 0) { return 0; }
+            final double LAT    = LATITUDE * TO_RAD;
+            final double LON    = normalize(LONGITUDE * TO_RAD);
+            final double COS    = Math.cos(LAT);
+            final int    ROW    = row(LAT);
+            final int    COLUMN = column(LON);
+            int found = 0;
+            if (size() <= BRUTE_FORCE_SIZE) {
+                for (int point = 0 ; point < size() ; point++) {
+                    found = insert(point, haversine(LAT, LON, COS, latitudes[point], longitudes[point], cosines[point]), found, K, INDICES, DISTANCES, INDEX_OFFSET, DISTANCE_OFFSET);
+                }
+                return found;
+            }
+            for (int ring = 0 ; ; ring++) {
+                final double WORST = found < K ? Double.POSITIVE_INFINITY : DISTANCES[DISTANCE_OFFSET + K - 1];
+                for (int row = ROW - ring ; row <= ROW + ring ; row++) {
+                    if (row < 0 || row >= rows) continue;
+                    final boolean EDGE_ROW = row == ROW - ring || row == ROW + ring;
+                    final int     STEP     = EDGE_ROW ? 1 : 2 * ring;
+                    for (int dc = -ring ; dc <= ring ; dc += Math.max(1, STEP)) {
+                        // columns wrap around the antimeridian but each cell is visited only once
+                        if (2 * ring + 1 > columns && (dc < -(columns / 2) || dc >= columns - columns / 2)) continue;
+                        final int    COL   = Math.floorMod(COLUMN + dc, columns);
+                        final double BOUND = cellDistance(LAT, LON, COS, row, COL);
+                        if (BOUND >= WORST) continue;
+                        for (int i = cellStarts[row * columns + COL], end = cellStarts[row * columns + COL + 1] ; i < end ; i++) {
+                            final int POINT = cellPoints[i];
+                            found = insert(POINT, haversine(LAT, LON, COS, latitudes[POINT], longitudes[POINT], cosines[POINT]), found, K, INDICES, DISTANCES, INDEX_OFFSET, DISTANCE_OFFSET);
+                        }
+                    }
+                }
+                final boolean ALL_ROWS    = ROW - ring <= 0 && ROW + ring >= rows - 1;
+                final boolean ALL_COLUMNS = 2 * ring + 1 >= columns;
+                if (ALL_ROWS && ALL_COLUMNS) { break; }
+                if (found == K && outsideDistance(COS, ring, ALL_ROWS, ALL_COLUMNS) >= DISTANCES[DISTANCE_OFFSET + K - 1]) { break; }
+            }
+            return found;
+        }
+
+        /**
+         * Inserts the point into the sorted neighbours if it is closer than the farthest of them.
+         * @return the new number of neighbours
+         */
+        private static int insert(final int POINT, final double DISTANCE, final int FOUND, final int K, final int[] INDICES, final double[] DISTANCES, final int INDEX_OFFSET, final int DISTANCE_OFFSET) {
+            if (FOUND == K && DISTANCE >= DISTANCES[DISTANCE_OFFSET + K - 1]) { return FOUND; }
+            int position = FOUND < K ? FOUND : K - 1;
+            while (position > 0 && DISTANCES[DISTANCE_OFFSET + position - 1] > DISTANCE) {
+                DISTANCES[DISTANCE_OFFSET + position] = DISTANCES[DISTANCE_OFFSET + position - 1];
+                INDICES[INDEX_OFFSET + position]      = INDICES[INDEX_OFFSET + position - 1];
+                position--;
+            }
+            DISTANCES[DISTANCE_OFFSET + position] = DISTANCE;
+            INDICES[INDEX_OFFSET + position]      = POINT;
+            return FOUND < K ? FOUND + 1 : FOUND;
+        }
+
+        /**
+         * @return a lower bound of the distance in meters between the point and all cells outside of the given ring
+         */
+        private double outsideDistance(final double COS, final int RING, final boolean ALL_ROWS, final boolean ALL_COLUMNS) {
+            // the cells of the next rows are at least RING cells away in latitude
+            final double ROW_DISTANCE    = ALL_ROWS ? Double.POSITIVE_INFINITY : EARTH_RADIUS * RING * cellSize;
+            // the cells of the next columns are at least RING cells away in longitude, the distance to such a
+            // meridian is asin(cos(lat) * sin(delta lon)) up to 90 degrees and the distance to the pole beyond
+            final double COLUMN_DISTANCE = ALL_COLUMNS ? Double.POSITIVE_INFINITY : EARTH_RADIUS * Math.asin(Math.min(1, COS * Math.sin(Math.min(Math.PI / 2, RING * cellSize))));
+            return Math.min(ROW_DISTANCE, COLUMN_DISTANCE);
+        }
+
+        /**
+         * @return a lower bound of the distance in meters between the point and the given cell
+         */
+        private double cellDistance(final double LAT, final double LON, final double COS, final int ROW, final int COLUMN) {
+            final double MIN_LAT = -Math.PI / 2 + ROW * cellSize;
+            final double MAX_LAT = Math.min(Math.PI / 2, MIN_LAT + cellSize);
+            final double MIN_LON = -Math.PI + COLUMN * cellSize;
+            final double MAX_LON = Math.min(Math.PI, MIN_LON + cellSize);
+            if (LON >= MIN_LON && LON <= MAX_LON) {
+                return EARTH_RADIUS * Math.max(0, Math.max(MIN_LAT - LAT, LAT - MAX_LAT));
+            }
+            // the closest point is on the meridian of the closer edge
+            final double TO_MIN    = Math.abs(normalize(MIN_LON - LON));
+            final double TO_MAX    = Math.abs(normalize(MAX_LON - LON));
+            final double EDGE_LON  = TO_MIN < TO_MAX ? MIN_LON : MAX_LON;
+            final double DELTA_LON = Math.min(TO_MIN, TO_MAX);
+            if (DELTA_LON >= Math.PI / 2) {
+                // the distance grows monotonically along the meridian, so one of the corners is the closest point
+                return Math.min(haversine(LAT, LON, COS, MIN_LAT, EDGE_LON, Math.cos(MIN_LAT)), haversine(LAT, LON, COS, MAX_LAT, EDGE_LON, Math.cos(MAX_LAT)));
+            }
+            final double CLOSEST = Math.max(MIN_LAT, Math.min(MAX_LAT, Math.atan(Math.tan(LAT) / Math.cos(DELTA_LON))));
+            return haversine(LAT, LON, COS, CLOSEST, EDGE_LON, Math.cos(CLOSEST));
+        }
+
+        private int row(final double LAT) { return Math.max(0, Math.min(rows - 1, (int) ((LAT + Math.PI / 2) / cellSize))); }
+
+        private int column(final double LON) { return Math.max(0, Math.min(columns - 1, (int) ((LON + Math.PI) / cellSize))); }
+
+        private static double normalize(final double LON) {
+            double lon = LON;
+            while (lon < -Math.PI) { lon += 2 * Math.PI; }
+            while (lon >= Math.PI) { lon -= 2 * Math.PI; }
+            return lon;
+        }
+    }
+}
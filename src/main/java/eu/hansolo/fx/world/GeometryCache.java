@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2016 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.world;
+
+import eu.hansolo.fx.world.World.Resolution;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+
+/**
+ * Process wide cache of the {@link WorldGeometry} per resolution.
+ * Every {@link #acquire(Resolution)} has to be balanced by a call to
+ * {@link #release(Resolution)}, the geometry of a resolution is evicted
+ * as soon as it is not referenced anymore.
+ */
+public class GeometryCache {
+    private static final Map<Resolution, WorldGeometry> CACHE = new EnumMap<>(Resolution.class);
+
+
+    // ******************** Constructors **************************************
+    private GeometryCache() {}
+
+
+    // ******************** Methods *******************************************
+    public static synchronized WorldGeometry acquire(final Resolution RESOLUTION) {
+        WorldGeometry geometry = CACHE.get(RESOLUTION);
+        if (null == geometry) {
+            geometry = WorldGeometry.load(RESOLUTION);
+            CACHE.put(RESOLUTION, geometry);
+        }
+        geometry.references++;
+        return geometry;
+    }
+
+    public static synchronized void release(final Resolution RESOLUTION) {
+        WorldGeometry geometry = CACHE.get(RESOLUTION);
+        if (null == geometry) { return; }
+        geometry.references--;
+        if (geometry.references <= 0) { CACHE.remove(RESOLUTION); }
+    }
+
+    public static synchronized int getReferenceCount(final Resolution RESOLUTION) {
+        WorldGeometry geometry = CACHE.get(RESOLUTION);
+        return null == geometry ? 0 : geometry.references;
+    }
+
+    public static synchronized boolean isCached(final Resolution RESOLUTION) { return CACHE.containsKey(RESOLUTION); }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2016 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.world;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+
+/**
+ * Converts the svg path based resolution properties files into the binary
+ * geometry format read by the {@link GeometryReader}. Coordinates are
+ * quantized to 1/1000 px which is the precision of the source files.
+ * Called by the compileGeometry task of the build with pairs of
+ * input properties file and output file.
+ */
+public class GeometryCompiler {
+    public static final int QUANTIZATION = 1000;
+
+
+    // ******************** Methods *******************************************
+    public static void main(final String[] args) throws IOException {
+        if (args.length == 0 || args.length % 2 != 0) {
+            System.out.println("Usage: GeometryCompiler <input.properties> <output.geo> [<input.properties> <output.geo> ...]");
+            System.exit(1);
+        }
+        for (int i = 0 ; i < args.length ; i += 2) {
+            File input  = new File(args[i]);
+            File output = new File(args[i + 1]);
+            if (null != output.getParentFile()) { output.getParentFile().mkdirs(); }
+            try (InputStream in = new FileInputStream(input); OutputStream out = new FileOutputStream(output)) {
+                compile(in, out);
+            }
+            System.out.println("Compiled " + input.getName() + " (" + input.length() + " bytes) to " + output.getName() + " (" + output.length() + " bytes)");
+        }
+    }
+
+    public static void compile(final InputStream PROPERTIES_STREAM, final OutputStream OUTPUT_STREAM) throws IOException {
+        Properties properties = new Properties();
+        properties.load(PROPERTIES_STREAM);
+
+        Map<String, List<PathGeometry>> countries = new TreeMap<>();
+        properties.forEach((key, value) -> {
+            List<PathGeometry> paths = new ArrayList<>();
+            for (String path : value.toString().split(";")) { paths.add(PathGeometry.parse(path)); }
+            countries.put(key.toString(), paths);
+        });
+        write(countries, OUTPUT_STREAM);
+    }
+
+    public static void write(final Map<String, List<PathGeometry>> COUNTRIES, final OutputStream OUTPUT_STREAM) throws IOException {
+        List<byte[]> blocks = new ArrayList<>(COUNTRIES.size());
+        int          header = 14;
+        for (Map.Entry<String, List<PathGeometry>> entry : COUNTRIES.entrySet()) {
+            blocks.add(encode(entry.getValue()));
+            header += 1 + entry.getKey().length() + 4;
+        }
+
+        DataOutputStream out = new DataOutputStream(OUTPUT_STREAM);
+        out.writeInt(GeometryReader.MAGIC);
+        out.writeShort(GeometryReader.VERSION);
+        out.writeInt(QUANTIZATION);
+        out.writeInt(COUNTRIES.size());
+        int offset = header;
+        int index  = 0;
+        for (String name : COUNTRIES.keySet()) {
+            byte[] bytes = name.getBytes(StandardCharsets.US_ASCII);
+            out.writeByte(bytes.length);
+            out.write(bytes);
+            out.writeInt(offset);
+            offset += blocks.get(index++).length;
+        }
+        for (byte[] block : blocks) { out.write(block); }
+        out.flush();
+    }
+
+    private static byte[] encode(final List<PathGeometry> PATHS) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int                   x   = 0;
+        int                   y   = 0;
+        writeVarInt(out, PATHS.size());
+        for (PathGeometry path : PATHS) {
+            writeVarInt(out, path.getRingCount());
+            for (int r = 0 ; r < path.getRingCount() ; r++) { writeVarInt(out, path.getRingEnd(r) - path.getRingStart(r)); }
+            for (int i = 0 ; i < path.getPointCount() ; i++) {
+                int qx = Math.round(path.getX(i) * QUANTIZATION);
+                int qy = Math.round(path.getY(i) * QUANTIZATION);
+                writeVarInt(out, zigZag(qx - x));
+                writeVarInt(out, zigZag(qy - y));
+                x = qx;
+                y = qy;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static int zigZag(final int VALUE) { return (VALUE << 1) ^ (VALUE >> 31); }
+
+    private static void writeVarInt(final ByteArrayOutputStream OUT, final int VALUE) {
+        int value = VALUE;
+        while ((value & ~0x7F) != 0) {
+            OUT.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        OUT.write(value);
+    }
+}
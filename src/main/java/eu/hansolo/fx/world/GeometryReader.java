@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2016 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.world;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Reads the binary geometry files created by the {@link GeometryCompiler}.
+ * <p>
+ * Layout (big endian):
+ * <pre>
+ * int    magic 'WGEO'
+ * short  version
+ * int    quantization (units per pixel)
+ * int    number of countries
+ * n x    byte name length, ascii name, int offset of the country block
+ * n x    country block:
+ *        varint paths, per path: varint rings, per ring: varint points
+ *        followed by zigzag varint dx, dy per point
+ * </pre>
+ * Point deltas start at 0,0 at the beginning of each country block so every
+ * country can be decoded on its own by using the offset table.
+ */
+public class GeometryReader {
+    static final int   MAGIC   = 0x5747454F;
+    static final short VERSION = 1;
+    private final ByteBuffer           buffer;
+    private final float                quantization;
+    private final Map<String, Integer> offsets;
+
+
+    // ******************** Constructors **************************************
+    public GeometryReader(final ByteBuffer BUFFER) {
+        buffer = BUFFER.duplicate();
+        if (MAGIC != buffer.getInt(0)) { throw new IllegalArgumentException("Not a geometry file"); }
+        if (VERSION != buffer.getShort(4)) { throw new IllegalArgumentException("Unsupported geometry file version " + buffer.getShort(4)); }
+        quantization = buffer.getInt(6);
+
+        int count    = buffer.getInt(10);
+        int position = 14;
+        offsets = new LinkedHashMap<>(count * 2);
+        for (int i = 0 ; i < count ; i++) {
+            int    length = buffer.get(position) & 0xFF;
+            byte[] name   = new byte[length];
+            ByteBuffer slice = buffer.duplicate();
+            slice.position(position + 1);
+            slice.get(name);
+            offsets.put(new String(name, StandardCharsets.US_ASCII), buffer.getInt(position + 1 + length));
+            position += 1 + length + 4;
+        }
+    }
+
+
+    // ******************** Methods *******************************************
+    /**
+     * Opens the given classpath resource. If the resource is a plain file it will
+     * be memory mapped, otherwise (e.g. inside a jar) it will be read into memory.
+     * @param RESOURCE_NAME name of the resource
+     * @return a reader or null if the resource does not exist or cannot be read
+     */
+    public static GeometryReader open(final String RESOURCE_NAME) {
+        final ClassLoader LOADER = Thread.currentThread().getContextClassLoader();
+        final URL         URL    = LOADER.getResource(RESOURCE_NAME);
+        if (null == URL) { return null; }
+        try {
+            if ("file".equals(URL.getProtocol())) {
+                try (FileChannel channel = FileChannel.open(Paths.get(URL.toURI()), StandardOpenOption.READ)) {
+                    return new GeometryReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+                }
+            }
+            try (InputStream resourceStream = URL.openStream()) {
+                ByteArrayOutputStream out  = new ByteArrayOutputStream(256 * 1024);
+                byte[]                data = new byte[16 * 1024];
+                int                   read;
+                while ((read = resourceStream.read(data)) != -1) { out.write(data, 0, read); }
+                return new GeometryReader(ByteBuffer.wrap(out.toByteArray()));
+            }
+        } catch (IOException | URISyntaxException | IllegalArgumentException exception) {
+            System.out.println(exception);
+            return null;
+        }
+    }
+
+    public List<String> getNames() { return new ArrayList<>(offsets.keySet()); }
+
+    public boolean contains(final String NAME) { return offsets.containsKey(NAME); }
+
+    /**
+     * Decodes the paths of the given country. This method is thread safe.
+     * @param NAME the iso code of the country
+     * @return the paths of the country or an empty list if it is not part of the file
+     */
+    public List<PathGeometry> read(final String NAME) {
+        Integer offset = offsets.get(NAME);
+        if (null == offset) { return Collections.emptyList(); }
+
+        final ByteBuffer BUFFER = buffer.duplicate();
+        BUFFER.position(offset);
+        int                pathCount = readVarInt(BUFFER);
+        List<PathGeometry> paths     = new ArrayList<>(pathCount);
+        int                x         = 0;
+        int                y         = 0;
+        for (int p = 0 ; p < pathCount ; p++) {
+            int   ringCount   = readVarInt(BUFFER);
+            int[] ringOffsets = new int[ringCount + 1];
+            for (int r = 0 ; r < ringCount ; r++) { ringOffsets[r + 1] = ringOffsets[r] + readVarInt(BUFFER); }
+            float[] coordinates = new float[ringOffsets[ringCount] * 2];
+            for (int i = 0 ; i < coordinates.length ; i += 2) {
+                x += readZigZag(BUFFER);
+                y += readZigZag(BUFFER);
+                coordinates[i]     = x / quantization;
+                coordinates[i + 1] = y / quantization;
+            }
+            paths.add(new PathGeometry(coordinates, ringOffsets));
+        }
+        return paths;
+    }
+
+    public Map<String, List<PathGeometry>> readAll() {
+        Map<String, List<PathGeometry>> geometries = new LinkedHashMap<>(offsets.size() * 2);
+        for (String name : offsets.keySet()) { geometries.put(name, read(name)); }
+        return geometries;
+    }
+
+    private static int readVarInt(final ByteBuffer BUFFER) {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b      = BUFFER.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static int readZigZag(final ByteBuffer BUFFER) {
+        int value = readVarInt(BUFFER);
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,516 @@
+/*
+ * Copyright (c) 2016 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.world;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+
+
+/**
+ * Douglas-Peucker simplification of country outlines.
+ * Junctions, i.e. the points where a shared border starts, ends or meets
+ * a third outline, are never removed and rings are split at them. The
+ * borders in between are simplified in a canonical orientation, so both
+ * countries end up with the same points along a shared border, and no
+ * country disappears as every ring keeps at least three points.
+ * Simplified segments that cross another simplified segment, e.g. of a
+ * nearby island or of the other side of a narrow bay, get the original
+ * point farthest from them back until no segments cross anymore, crossings
+ * that already exist in the original outlines are left as they are. A small
+ * island that ends up on the other side of a simplified coast without any
+ * crossing segment is not detected.
+ * Called by the simplifyGeometry task of the build to create the
+ * simplified resolution tiers.
+ */
+public class GeometrySimplifier {
+    /**
+     * Maximum deviation in screen pixels of a simplified outline at the zoom level of its tier.
+     */
+    public static final double SCREEN_TOLERANCE = 0.25;
+    // upper limit of simplification passes that restore points of crossing segments
+    private static final int   MAX_PASSES       = 16;
+
+
+    // ******************** Constructors **************************************
+    private GeometrySimplifier() {}
+
+
+    // ******************** Methods *******************************************
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 3) {
+            System.out.println("Usage: GeometrySimplifier <input.properties> <output directory> <name> [<zoom> ...]");
+            System.exit(1);
+        }
+        File       input      = new File(args[0]);
+        File       outputDir  = new File(args[1]);
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(input)) {
+            properties.load(in);
+        }
+        Map<String, List<PathGeometry>> countries = new TreeMap<>();
+        properties.forEach((key, value) -> {
+            List<PathGeometry> paths = new ArrayList<>();
+            for (String path : value.toString().split(";")) { paths.add(PathGeometry.parse(path)); }
+            countries.put(key.toString(), paths);
+        });
+        outputDir.mkdirs();
+        for (int i = 3 ; i < args.length ; i++) {
+            int                             zoom       = Integer.parseInt(args[i]);
+            Map<String, List<PathGeometry>> simplified = simplify(countries, getTolerance(zoom));
+            File                            output     = new File(outputDir, args[2] + "-" + zoom + ".geo");
+            try (OutputStream out = new FileOutputStream(output)) {
+                GeometryCompiler.write(simplified, out);
+            }
+            System.out.println("Simplified " + input.getName() + " for zoom " + zoom + " to " + getPointCount(simplified) + " of " + getPointCount(countries) + " points (" + output.getName() + ", " + output.length() + " bytes)");
+        }
+    }
+
+    /**
+     * @param ZOOM the scale factor the outlines will be shown with
+     * @return the tolerance in map space that keeps the deviation at the given zoom below {@link #SCREEN_TOLERANCE}
+     */
+    public static double getTolerance(final int ZOOM) { return SCREEN_TOLERANCE / ZOOM; }
+
+    /**
+     * Simplifies all countries, keeps the junctions between their outlines and
+     * restores points where simplified segments would cross each other.
+     * @param COUNTRIES the outlines of all countries by iso code
+     * @param TOLERANCE the maximum deviation in map space
+     * @return the simplified outlines by iso code
+     */
+    public static Map<String, List<PathGeometry>> simplify(final Map<String, List<PathGeometry>> COUNTRIES, final double TOLERANCE) {
+        List<List<PathGeometry>>        countries  = simplifyAll(new ArrayList<>(COUNTRIES.values()), TOLERANCE, findJunctions(COUNTRIES.values()));
+        Map<String, List<PathGeometry>> simplified = new LinkedHashMap<>(COUNTRIES.size() * 2);
+        int                             index      = 0;
+        for (String name : COUNTRIES.keySet()) { simplified.put(name, countries.get(index++)); }
+        return simplified;
+    }
+
+    /**
+     * A point is a junction if it is part of more than two rings or if it is part of two
+     * rings with different neighbours, which are the ends of a shared border. Points inside
+     * a shared border have the same neighbours in both rings and may be removed.
+     * @param COUNTRIES the outlines of all countries
+     * @return the keys of all junctions, see {@link #key(float, float)}
+     */
+    public static Set<Long> findJunctions(final Collection<List<PathGeometry>> COUNTRIES) {
+        Map<Long, long[]>  neighbours = new HashMap<>();
+        Map<Long, Integer> rings      = new HashMap<>();
+        Set<Long>          junctions  = new HashSet<>();
+        for (List<PathGeometry> paths : COUNTRIES) {
+            for (PathGeometry path : paths) {
+                for (int ring = 0 ; ring < path.getRingCount() ; ring++) {
+                    int start = path.getRingStart(ring);
+                    int size  = path.getRingEnd(ring) - start;
+                    for (int i = 0 ; i < size ; i++) {
+                        int    previous = start + (i + size - 1) % size;
+                        int    next     = start + (i + 1) % size;
+                        long   key      = key(path.getX(start + i), path.getY(start + i));
+                        long   a        = key(path.getX(previous), path.getY(previous));
+                        long   b        = key(path.getX(next), path.getY(next));
+                        // unordered, a shared border runs in opposite directions in the two rings
+                        long[] pair     = { Math.min(a, b), Math.max(a, b) };
+                        long[] existing = neighbours.putIfAbsent(key, pair);
+                        if (null == existing) continue;
+                        if (rings.merge(key, 2, (count, one) -> count + 1) > 2 || !Arrays.equals(existing, pair)) { junctions.add(key); }
+                    }
+                }
+            }
+        }
+        return junctions;
+    }
+
+    /**
+     * @param PATHS     the paths of one country
+     * @param TOLERANCE the maximum deviation in map space
+     * @param LOCKED    keys of points that must not be removed, see {@link #key(float, float)}
+     * @return the simplified paths, without crossing segments between them
+     */
+    public static List<PathGeometry> simplify(final List<PathGeometry> PATHS, final double TOLERANCE, final Set<Long> LOCKED) {
+        return simplifyAll(Collections.singletonList(PATHS), TOLERANCE, LOCKED).get(0);
+    }
+
+    /**
+     * Simplifies a single path without checking for crossing segments.
+     * @param PATH      the path to simplify
+     * @param TOLERANCE the maximum deviation in map space
+     * @param LOCKED    keys of points that must not be removed, see {@link #key(float, float)}
+     * @return the simplified path
+     */
+    public static PathGeometry simplify(final PathGeometry PATH, final double TOLERANCE, final Set<Long> LOCKED) {
+        return toGeometry(PATH, simplifyPath(PATH, TOLERANCE * TOLERANCE, LOCKED));
+    }
+
+    /**
+     * @param X x coordinate in map space
+     * @param Y y coordinate in map space
+     * @return a key that identifies the point at the precision of the geometry files
+     */
+    public static long key(final float X, final float Y) {
+        return ((long) Math.round(X * GeometryCompiler.QUANTIZATION)) << 32 | (Math.round(Y * GeometryCompiler.QUANTIZATION) & 0xFFFFFFFFL);
+    }
+
+    private static List<List<PathGeometry>> simplifyAll(final List<List<PathGeometry>> COUNTRIES, final double TOLERANCE, final Set<Long> LOCKED) {
+        final double       TOLERANCE_SQUARED = TOLERANCE * TOLERANCE;
+        List<PathGeometry> paths             = new ArrayList<>();
+        for (List<PathGeometry> country : COUNTRIES) { paths.addAll(country); }
+
+        // restored points are locked for all countries, so a shared border gets them back on both sides
+        Set<Long>       locked = new HashSet<>(LOCKED);
+        List<boolean[]> keep   = new ArrayList<>(paths.size());
+        for (int pass = 0 ; pass < MAX_PASSES ; pass++) {
+            keep.clear();
+            for (PathGeometry path : paths) { keep.add(simplifyPath(path, TOLERANCE_SQUARED, locked)); }
+            if (!locked.addAll(findCrossings(paths, keep))) break;
+        }
+
+        List<List<PathGeometry>> simplified = new ArrayList<>(COUNTRIES.size());
+        int                      index      = 0;
+        for (List<PathGeometry> country : COUNTRIES) {
+            List<PathGeometry> result = new ArrayList<>(country.size());
+            for (PathGeometry path : country) { result.add(toGeometry(path, keep.get(index++))); }
+            simplified.add(result);
+        }
+        return simplified;
+    }
+
+    private static boolean[] simplifyPath(final PathGeometry PATH, final double TOLERANCE_SQUARED, final Set<Long> LOCKED) {
+        boolean[] keep = new boolean[PATH.getPointCount()];
+        for (int ring = 0 ; ring < PATH.getRingCount() ; ring++) {
+            int start = PATH.getRingStart(ring);
+            int end   = PATH.getRingEnd(ring);
+            System.arraycopy(simplifyRing(PATH, start, end, TOLERANCE_SQUARED, LOCKED), 0, keep, start, end - start);
+        }
+        return keep;
+    }
+
+    private static PathGeometry toGeometry(final PathGeometry PATH, final boolean[] KEEP) {
+        float[] coordinates = new float[PATH.getPointCount() * 2];
+        int[]   ringOffsets = new int[PATH.getRingCount() + 1];
+        int     points      = 0;
+        for (int ring = 0 ; ring < PATH.getRingCount() ; ring++) {
+            ringOffsets[ring] = points;
+            for (int i = PATH.getRingStart(ring) ; i < PATH.getRingEnd(ring) ; i++) {
+                if (!KEEP[i]) continue;
+                coordinates[points * 2]     = PATH.getX(i);
+                coordinates[points * 2 + 1] = PATH.getY(i);
+                points++;
+            }
+        }
+        ringOffsets[PATH.getRingCount()] = points;
+        return new PathGeometry(Arrays.copyOf(coordinates, points * 2), ringOffsets);
+    }
+
+    /**
+     * Finds the simplified segments that properly cross another simplified segment while the
+     * original points in between don't. Segments that only touch or overlap, like the two sides
+     * of a shared border, don't count.
+     * @param PATHS the original paths
+     * @param KEEP  the kept points of every path
+     * @return the keys of the points that resolve the crossings, the ends of every crossing
+     *         segment and the original point in between that is farthest away from it
+     */
+    private static Set<Long> findCrossings(final List<PathGeometry> PATHS, final List<boolean[]> KEEP) {
+        // every segment as path, ring start, ring size, from and to (relative to the ring start, to may wrap around)
+        int[]  segments = new int[1024];
+        int    count    = 0;
+        double minX     = Double.MAX_VALUE;
+        double minY     = Double.MAX_VALUE;
+        double maxX     = -Double.MAX_VALUE;
+        double maxY     = -Double.MAX_VALUE;
+        for (int p = 0 ; p < PATHS.size() ; p++) {
+            PathGeometry path = PATHS.get(p);
+            boolean[]    keep = KEEP.get(p);
+            for (int ring = 0 ; ring < path.getRingCount() ; ring++) {
+                int start    = path.getRingStart(ring);
+                int size     = path.getRingEnd(ring) - start;
+                int first    = -1;
+                int previous = -1;
+                for (int i = 0 ; i <= size ; i++) {
+                    if (i == size && first < 0) break;
+                    int index = i == size ? first : i;
+                    if (!keep[start + index]) continue;
+                    minX = Math.min(minX, path.getX(start + index));
+                    minY = Math.min(minY, path.getY(start + index));
+                    maxX = Math.max(maxX, path.getX(start + index));
+                    maxY = Math.max(maxY, path.getY(start + index));
+                    if (previous >= 0) {
+                        if (count * 5 + 5 > segments.length) { segments = Arrays.copyOf(segments, segments.length * 2); }
+                        segments[count * 5]     = p;
+                        segments[count * 5 + 1] = start;
+                        segments[count * 5 + 2] = size;
+                        segments[count * 5 + 3] = previous;
+                        segments[count * 5 + 4] = i;
+                        count++;
+                    }
+                    if (first < 0) { first = i; }
+                    previous = i;
+                }
+            }
+        }
+        Set<Long> restore = new HashSet<>();
+        if (count < 2) { return restore; }
+
+        // sort the segments into the cells of a grid with about one segment per cell and test the pairs in each cell
+        double     cellSize = Math.max(Math.max(maxX - minX, maxY - minY) / Math.sqrt(count), 1e-6);
+        long       rows     = (long) ((maxY - minY) / cellSize) + 1;
+        List<Long> cells    = new ArrayList<>(count * 2);
+        for (int s = 0 ; s < count ; s++) {
+            PathGeometry path  = PATHS.get(segments[s * 5]);
+            int          start = segments[s * 5 + 1];
+            int          size  = segments[s * 5 + 2];
+            int          a     = start + segments[s * 5 + 3] % size;
+            int          b     = start + segments[s * 5 + 4] % size;
+            long         minCx = (long) ((Math.min(path.getX(a), path.getX(b)) - minX) / cellSize);
+            long         maxCx = (long) ((Math.max(path.getX(a), path.getX(b)) - minX) / cellSize);
+            long         minCy = (long) ((Math.min(path.getY(a), path.getY(b)) - minY) / cellSize);
+            long         maxCy = (long) ((Math.max(path.getY(a), path.getY(b)) - minY) / cellSize);
+            for (long cx = minCx ; cx <= maxCx ; cx++) {
+                for (long cy = minCy ; cy <= maxCy ; cy++) { cells.add((cx * rows + cy) << 32 | s); }
+            }
+        }
+        Collections.sort(cells);
+        for (int first = 0, last ; first < cells.size() ; first = last) {
+            long cell = cells.get(first) >>> 32;
+            last = first + 1;
+            while (last < cells.size() && cells.get(last) >>> 32 == cell) { last++; }
+            for (int i = first ; i < last ; i++) {
+                for (int j = i + 1 ; j < last ; j++) {
+                    int s = (int) (long) cells.get(i);
+                    int t = (int) (long) cells.get(j);
+                    if (!crosses(PATHS, segments, s, t)) continue;
+                    restore(PATHS, segments, s, restore);
+                    restore(PATHS, segments, t, restore);
+                }
+            }
+        }
+        return restore;
+    }
+
+    private static boolean crosses(final List<PathGeometry> PATHS, final int[] SEGMENTS, final int S, final int T) {
+        PathGeometry p     = PATHS.get(SEGMENTS[S * 5]);
+        PathGeometry q     = PATHS.get(SEGMENTS[T * 5]);
+        int          pFrom = SEGMENTS[S * 5 + 3];
+        int          pTo   = SEGMENTS[S * 5 + 4];
+        int          qFrom = SEGMENTS[T * 5 + 3];
+        int          qTo   = SEGMENTS[T * 5 + 4];
+        if (!crosses(p, SEGMENTS[S * 5 + 1], SEGMENTS[S * 5 + 2], pFrom, pTo, q, SEGMENTS[T * 5 + 1], SEGMENTS[T * 5 + 2], qFrom, qTo)) { return false; }
+        // borders of neighbouring countries that don't match exactly already cross in the original outlines
+        for (int i = pFrom ; i < pTo ; i++) {
+            for (int j = qFrom ; j < qTo ; j++) {
+                if (crosses(p, SEGMENTS[S * 5 + 1], SEGMENTS[S * 5 + 2], i, i + 1, q, SEGMENTS[T * 5 + 1], SEGMENTS[T * 5 + 2], j, j + 1)) { return false; }
+            }
+        }
+        return true;
+    }
+
+    private static boolean crosses(final PathGeometry P, final int P_START, final int P_SIZE, final int P_FROM, final int P_TO,
+                                   final PathGeometry Q, final int Q_START, final int Q_SIZE, final int Q_FROM, final int Q_TO) {
+        int    a  = P_START + P_FROM % P_SIZE;
+        int    b  = P_START + P_TO % P_SIZE;
+        int    c  = Q_START + Q_FROM % Q_SIZE;
+        int    d  = Q_START + Q_TO % Q_SIZE;
+        double o1 = orientation(Q.getX(c), Q.getY(c), Q.getX(d), Q.getY(d), P.getX(a), P.getY(a));
+        double o2 = orientation(Q.getX(c), Q.getY(c), Q.getX(d), Q.getY(d), P.getX(b), P.getY(b));
+        double o3 = orientation(P.getX(a), P.getY(a), P.getX(b), P.getY(b), Q.getX(c), Q.getY(c));
+        double o4 = orientation(P.getX(a), P.getY(a), P.getX(b), P.getY(b), Q.getX(d), Q.getY(d));
+        // strict signs, so shared ends and collinear overlaps are no crossing
+        return ((o1 > 0 && o2 < 0) || (o1 < 0 && o2 > 0)) && ((o3 > 0 && o4 < 0) || (o3 < 0 && o4 > 0));
+    }
+
+    private static double orientation(final double AX, final double AY, final double BX, final double BY, final double PX, final double PY) {
+        return (BX - AX) * (PY - AY) - (BY - AY) * (PX - AX);
+    }
+
+    private static void restore(final List<PathGeometry> PATHS, final int[] SEGMENTS, final int S, final Set<Long> RESTORE) {
+        PathGeometry path  = PATHS.get(SEGMENTS[S * 5]);
+        int          start = SEGMENTS[S * 5 + 1];
+        int          size  = SEGMENTS[S * 5 + 2];
+        int          from  = SEGMENTS[S * 5 + 3];
+        int          to    = SEGMENTS[S * 5 + 4];
+        RESTORE.add(key(path.getX(start + from % size), path.getY(start + from % size)));
+        RESTORE.add(key(path.getX(start + to % size), path.getY(start + to % size)));
+        if (to - from < 2) return;
+        int point = start + (from + 1 + farthestFromLine(path, start, size, from, to)) % size;
+        RESTORE.add(key(path.getX(point), path.getY(point)));
+    }
+
+    private static boolean[] simplifyRing(final PathGeometry PATH, final int START, final int END, final double TOLERANCE_SQUARED, final Set<Long> LOCKED) {
+        final int SIZE = END - START;
+        boolean[] keep = new boolean[SIZE];
+        if (SIZE <= 3) {
+            Arrays.fill(keep, true);
+            return keep;
+        }
+
+        List<Integer> anchors = new ArrayList<>();
+        for (int i = 0 ; i < SIZE ; i++) {
+            if (LOCKED.contains(key(PATH.getX(START + i), PATH.getY(START + i)))) { anchors.add(i); }
+        }
+        if (anchors.size() < 2) {
+            // split the ring at a fixed (or the lowest) point and the point farthest away from it, both
+            // independent of where the ring starts and its direction, e.g. for an enclave and the hole around it
+            int anchor = anchors.isEmpty() ? lowest(PATH, START, SIZE) : anchors.get(0);
+            int other  = farthest(PATH, START, SIZE, anchor);
+            anchors.clear();
+            anchors.add(anchor);
+            anchors.add(other == anchor ? (anchor + SIZE / 2) % SIZE : other);
+            Collections.sort(anchors);
+        }
+        for (int anchor : anchors) { keep[anchor] = true; }
+
+        // simplify the chains between consecutive anchors, the last one wraps around
+        for (int a = 0 ; a < anchors.size() ; a++) {
+            int from = anchors.get(a);
+            int to   = a + 1 < anchors.size() ? anchors.get(a + 1) : anchors.get(0) + SIZE;
+            simplifyChain(PATH, START, SIZE, from, to, TOLERANCE_SQUARED, keep);
+        }
+
+        int kept = 0;
+        for (boolean k : keep) { if (k) kept++; }
+        if (kept < 3) {
+            // keep at least a triangle so that small islands don't vanish
+            int from  = anchors.get(0);
+            int to    = anchors.get(1);
+            keep[(from + 1 + farthestFromLine(PATH, START, SIZE, from, to)) % SIZE] = true;
+            keep[(to + 1 + farthestFromLine(PATH, START, SIZE, to, from + SIZE)) % SIZE] = true;
+        }
+        return keep;
+    }
+
+    private static void simplifyChain(final PathGeometry PATH, final int START, final int SIZE, final int FROM, final int TO, final double TOLERANCE_SQUARED, final boolean[] KEEP) {
+        // iterative Douglas-Peucker on the indices FROM..TO (TO may be larger than SIZE for the wrapping chain)
+        int[] stack = new int[64];
+        int   top   = 0;
+        stack[top++] = FROM;
+        stack[top++] = TO;
+        while (top > 0) {
+            int to   = stack[--top];
+            int from = stack[--top];
+            if (to - from < 2) continue;
+            // measure against the segment in a canonical orientation and break ties by key, so the
+            // neighbouring country that has this chain in the opposite direction keeps the same points
+            int    first  = START + from % SIZE;
+            int    last   = START + to % SIZE;
+            if (key(PATH.getX(first), PATH.getY(first)) > key(PATH.getX(last), PATH.getY(last))) {
+                first = START + to % SIZE;
+                last  = START + from % SIZE;
+            }
+            double ax     = PATH.getX(first);
+            double ay     = PATH.getY(first);
+            double bx     = PATH.getX(last);
+            double by     = PATH.getY(last);
+            double maxD   = -1;
+            int    maxIdx = -1;
+            for (int i = from + 1 ; i < to ; i++) {
+                double d = distanceSquared(PATH.getX(START + i % SIZE), PATH.getY(START + i % SIZE), ax, ay, bx, by);
+                if (d > maxD || (d == maxD && isLower(PATH, START + i % SIZE, START + maxIdx % SIZE))) {
+                    maxD   = d;
+                    maxIdx = i;
+                }
+            }
+            if (maxD > TOLERANCE_SQUARED) {
+                KEEP[maxIdx % SIZE] = true;
+                if (top + 4 > stack.length) { stack = Arrays.copyOf(stack, stack.length * 2); }
+                stack[top++] = from;
+                stack[top++] = maxIdx;
+                stack[top++] = maxIdx;
+                stack[top++] = to;
+            }
+        }
+    }
+
+    private static int lowest(final PathGeometry PATH, final int START, final int SIZE) {
+        int minIdx = 0;
+        for (int i = 1 ; i < SIZE ; i++) {
+            if (isLower(PATH, START + i, START + minIdx)) { minIdx = i; }
+        }
+        return minIdx;
+    }
+
+    private static boolean isLower(final PathGeometry PATH, final int POINT, final int OTHER) {
+        return key(PATH.getX(POINT), PATH.getY(POINT)) < key(PATH.getX(OTHER), PATH.getY(OTHER));
+    }
+
+    private static int farthest(final PathGeometry PATH, final int START, final int SIZE, final int INDEX) {
+        double x      = PATH.getX(START + INDEX);
+        double y      = PATH.getY(START + INDEX);
+        double maxD   = -1;
+        int    maxIdx = INDEX;
+        for (int i = 0 ; i < SIZE ; i++) {
+            double dx = PATH.getX(START + i) - x;
+            double dy = PATH.getY(START + i) - y;
+            if (dx * dx + dy * dy > maxD || (dx * dx + dy * dy == maxD && isLower(PATH, START + i, START + maxIdx))) {
+                maxD   = dx * dx + dy * dy;
+                maxIdx = i;
+            }
+        }
+        return maxIdx;
+    }
+
+    private static int farthestFromLine(final PathGeometry PATH, final int START, final int SIZE, final int FROM, final int TO) {
+        double ax     = PATH.getX(START + FROM % SIZE);
+        double ay     = PATH.getY(START + FROM % SIZE);
+        double bx     = PATH.getX(START + TO % SIZE);
+        double by     = PATH.getY(START + TO % SIZE);
+        double maxD   = -1;
+        int    maxIdx = 0;
+        for (int i = FROM + 1 ; i < TO ; i++) {
+            double d = distanceSquared(PATH.getX(START + i % SIZE), PATH.getY(START + i % SIZE), ax, ay, bx, by);
+            if (d > maxD) {
+                maxD   = d;
+                maxIdx = i - FROM - 1;
+            }
+        }
+        return maxIdx;
+    }
+
+    private static double distanceSquared(final double PX, final double PY, final double AX, final double AY, final double BX, final double BY) {
+        double dx     = BX - AX;
+        double dy     = BY - AY;
+        double length = dx * dx + dy * dy;
+        if (length == 0) { return (PX - AX) * (PX - AX) + (PY - AY) * (PY - AY); }
+        double t  = Math.max(0, Math.min(1, ((PX - AX) * dx + (PY - AY) * dy) / length));
+        double cx = AX + t * dx - PX;
+        double cy = AY + t * dy - PY;
+        return cx * cx + cy * cy;
+    }
+
+    private static int getPointCount(final Map<String, List<PathGeometry>> COUNTRIES) {
+        int count = 0;
+        for (List<PathGeometry> paths : COUNTRIES.values()) {
+            for (PathGeometry path : paths) { count += path.getPointCount(); }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2016 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.world;
+
+import javafx.scene.SnapshotParameters;
+import javafx.scene.image.Image;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.ImagePattern;
+import org.kordamp.ikonli.Ikon;
+import org.kordamp.ikonli.javafx.FontIcon;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Bounded cache of pre-rendered location icons, one image per icon code, size,
+ * color and output scale. Markers that look the same share one image, so the
+ * memory and layout costs depend on the number of distinct icons instead of
+ * the number of locations. The least recently used icon is evicted when the
+ * cache is full.
+ * The images are rendered with a power of two output scale so that they stay
+ * sharp while zooming without creating a new image for every scale.
+ * Must only be used on the FX application thread.
+ */
+public class IconCache {
+    public  static final int              DEFAULT_MAX_SIZE = 256;
+    private static final int              MAX_PIXEL_SIZE   = 256;
+    private        final int              maxSize;
+    private        final Map<Key, Entry>  entries;
+    private              long             hits;
+    private              long             misses;
+    private              long             evictions;
+
+
+    // ******************** Constructors **************************************
+    public IconCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+    public IconCache(final int MAX_SIZE) {
+        if (MAX_SIZE < 1) { throw new IllegalArgumentException("MAX_SIZE must be at least 1"); }
+        maxSize = MAX_SIZE;
+        entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(final Map.Entry<Key, Entry> ELDEST) {
+                if (size() <= maxSize) { return false; }
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+
+    // ******************** Methods *******************************************
+    /**
+     * @param RENDER_SCALE the number of pixels per unit in map space
+     * @return the smallest power of two that is not smaller than the given scale
+     */
+    public static double getOutputScale(final double RENDER_SCALE) {
+        double scale = 1;
+        while (scale < RENDER_SCALE && scale * 2 <= MAX_PIXEL_SIZE) { scale *= 2; }
+        return scale;
+    }
+
+    /**
+     * The images are at most MAX_PIXEL_SIZE pixels large, so large icons are rendered
+     * with a smaller scale than the output scale. Divide the size of an image by this
+     * scale to get its size in map space.
+     * @param SIZE         the icon size in map space
+     * @param OUTPUT_SCALE the output scale, see {@link #getOutputScale(double)}
+     * @return the number of pixels per unit in map space of the image of the given icon size
+     */
+    public static double getImageScale(final int SIZE, final double OUTPUT_SCALE) {
+        return Math.min(OUTPUT_SCALE, MAX_PIXEL_SIZE / (double) Math.max(1, SIZE));
+    }
+
+    /**
+     * @param ICON_CODE    the icon
+     * @param SIZE         the size of the icon in map space
+     * @param COLOR        the color of the icon
+     * @param OUTPUT_SCALE the output scale, see {@link #getOutputScale(double)}
+     * @return the image of the icon with SIZE * getImageScale(SIZE, OUTPUT_SCALE) pixels
+     */
+    public Image get(final Ikon ICON_CODE, final int SIZE, final Color COLOR, final double OUTPUT_SCALE) {
+        return getEntry(ICON_CODE, SIZE, COLOR, OUTPUT_SCALE).image;
+    }
+
+    /**
+     * Same as {@link #get(Ikon, int, Color, double)} but wrapped in a pattern that
+     * fills the bounds of a shape. The pattern is shared by all shapes with the same icon.
+     * @param ICON_CODE    the icon
+     * @param SIZE         the size of the icon in map space
+     * @param COLOR        the color of the icon
+     * @param OUTPUT_SCALE the output scale, see {@link #getOutputScale(double)}
+     * @return a pattern of the icon image
+     */
+    public ImagePattern getPattern(final Ikon ICON_CODE, final int SIZE, final Color COLOR, final double OUTPUT_SCALE) {
+        Entry entry = getEntry(ICON_CODE, SIZE, COLOR, OUTPUT_SCALE);
+        if (null == entry.pattern) { entry.pattern = new ImagePattern(entry.image); }
+        return entry.pattern;
+    }
+
+    public int getMaxSize() { return maxSize; }
+
+    /**
+     * @return the number of icons that are currently cached
+     */
+    public int size() { return entries.size(); }
+
+    /**
+     * @return the number of requests that were served from the cache
+     */
+    public long getHitCount() { return hits; }
+
+    /**
+     * @return the number of requests that had to render a new icon
+     */
+    public long getMissCount() { return misses; }
+
+    /**
+     * @return the number of icons that have been evicted because the cache was full
+     */
+    public long getEvictionCount() { return evictions; }
+
+    public void clear() { entries.clear(); }
+
+    public void resetStatistics() {
+        hits      = 0;
+        misses    = 0;
+        evictions = 0;
+    }
+
+    @Override public String toString() {
+        return new StringBuilder().append("IconCache[size=").append(size()).append("/").append(maxSize)
+                                  .append(", hits=").append(hits)
+                                  .append(", misses=").append(misses)
+                                  .append(", evictions=").append(evictions)
+                                  .append("]").toString();
+    }
+
+    private Entry getEntry(final Ikon ICON_CODE, final int SIZE, final Color COLOR, final double OUTPUT_SCALE) {
+        // output scales beyond the pixel limit of this size share one image
+        double scale = getImageScale(SIZE, OUTPUT_SCALE);
+        Key    key   = new Key(ICON_CODE, SIZE, COLOR, scale);
+        Entry  entry = entries.get(key);
+        if (null != entry) {
+            hits++;
+            return entry;
+        }
+        misses++;
+        entry = new Entry(render(ICON_CODE, (int) Math.max(1, Math.round(SIZE * scale)), COLOR));
+        entries.put(key, entry);
+        return entry;
+    }
+
+    private static Image render(final Ikon ICON_CODE, final int PIXEL_SIZE, final Color COLOR) {
+        FontIcon icon = new FontIcon(ICON_CODE);
+        icon.setIconSize(PIXEL_SIZE);
+        icon.setIconColor(COLOR);
+        SnapshotParameters parameters = new SnapshotParameters();
+        parameters.setFill(Color.TRANSPARENT);
+        return icon.snapshot(parameters, null);
+    }
+
+
+    // ******************** Inner Classes *************************************
+    private static class Key {
+        private final Ikon   iconCode;
+        private final int    size;
+        private final Color  color;
+        private final double outputScale;
+        private final int    hash;
+
+
+        // ******************** Constructors **********************************
+        Key(final Ikon ICON_CODE, final int SIZE, final Color COLOR, final double OUTPUT_SCALE) {
+            iconCode    = ICON_CODE;
+            size        = SIZE;
+            color       = COLOR;
+            outputScale = OUTPUT_SCALE;
+            hash        = hash(ICON_CODE, SIZE, COLOR, OUTPUT_SCALE);
+        }
+
+
+        // ******************** Methods ***************************************
+        // same as Objects.hash but without boxing the primitives into a varargs array
+        static int hash(final Ikon ICON_CODE, final int SIZE, final Color COLOR, final double OUTPUT_SCALE) {
+            int hash = 31 + ICON_CODE.hashCode();
+            hash = 31 * hash + SIZE;
+            hash = 31 * hash + COLOR.hashCode();
+            return 31 * hash + Double.hashCode(OUTPUT_SCALE);
+        }
+
+        @Override public boolean equals(final Object OBJECT) {
+            if (this == OBJECT) { return true; }
+            if (!(OBJECT instanceof Key)) { return false; }
+            Key key = (Key) OBJECT;
+            return size == key.size && Double.compare(outputScale, key.outputScale) == 0 && iconCode.equals(key.iconCode) && color.equals(key.color);
+        }
+
+        @Override public int hashCode() { return hash; }
+    }
+
+    private static class Entry {
+        private final Image        image;
+        private       ImagePattern pattern;
+
+
+        // ******************** Constructors **********************************
+        Entry(final Image IMAGE) {
+            image = IMAGE;
+        }
+    }
+}
@@ -27,7 +27,8 @@ import org.kordamp.ikonli.Ikon;
  * Created by hansolo on 20.11.16.
  */
 public class Location {
-    private static final double                   EARTH_RADIUS      = 6_371_000; // [m]
+    public  static final int                      MIN_ICON_SIZE     = 6;
+    public  static final int                      MAX_ICON_SIZE     = 24;
     private static final int                      DEFAULT_ICON_SIZE = 12;
     private              String                   name;
     private              double                   latitude;
@@ -104,7 +105,7 @@ public class Location {
         info      = INFO;
         color     = COLOR;
         iconCode  = ICON_CODE;
-        iconSize  = ICON_SIZE;
+        iconSize  = clamp(MIN_ICON_SIZE, MAX_ICON_SIZE, ICON_SIZE);
     }
 
 
@@ -128,7 +129,7 @@ public class Location {
     public void setIconCode(final Ikon ICON_CODE) { iconCode = ICON_CODE; }
 
     public int getIconSize() { return iconSize; }
-    public void setIconSize(final int SIZE) { iconSize = clamp(6, 24, SIZE); }
+    public void setIconSize(final int SIZE) { iconSize = clamp(MIN_ICON_SIZE, MAX_ICON_SIZE, SIZE); }
 
     public EventHandler<MouseEvent> getMouseEnterHandler() { return mouseEnterHandler; }
     public void setMouseEnterHandler(final EventHandler<MouseEvent> HANDLER) { mouseEnterHandler = HANDLER; }
@@ -151,17 +152,7 @@ public class Location {
         return calcDistanceInMeter(P1, P2) / 1000.0;
     }
     public double calcDistanceInMeter(final double LAT_1, final double LON_1, final double LAT_2, final double LON_2) {
-        final double LAT_1_RADIANS     = Math.toRadians(LAT_1);
-        final double LAT_2_RADIANS     = Math.toRadians(LAT_2);
-        final double DELTA_LAT_RADIANS = Math.toRadians(LAT_2-LAT_1);
-        final double DELTA_LON_RADIANS = Math.toRadians(LON_2-LON_1);
-
-        final double A = Math.sin(DELTA_LAT_RADIANS * 0.5) * Math.sin(DELTA_LAT_RADIANS * 0.5) + Math.cos(LAT_1_RADIANS) * Math.cos(LAT_2_RADIANS) * Math.sin(DELTA_LON_RADIANS * 0.5) * Math.sin(DELTA_LON_RADIANS * 0.5);
-        final double C = 2 * Math.atan2(Math.sqrt(A), Math.sqrt(1-A));
-
-        final double DISTANCE = EARTH_RADIUS * C;
-
-        return DISTANCE;
+        return Geodesy.distance(LAT_1, LON_1, LAT_2, LON_2);
     }
 
     private int clamp(final int MIN_VALUE, final int MAX_VALUE, final int VALUE) {
@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) 2016 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.world;
+
+import javafx.geometry.Bounds;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Grid based cluster hierarchy of locations. Every level divides the map into
+ * cells that are half as large as the cells of the level above, all locations
+ * in a cell are merged into one {@link Cluster}. Adding or removing a location
+ * only touches one cell per level and the changed cells are recorded, so a view
+ * only has to update the clusters that actually changed.
+ * The hierarchy can be created off the FX application thread, all methods are thread safe.
+ */
+public class LocationClusters {
+    public  static final int                      LEVELS    = 6;
+    /**
+     * Size of the cells of level 0 in map space.
+     */
+    public  static final double                   CELL_SIZE = 64;
+    private        final List<Map<Long, Cluster>> levels;
+    private        final List<Set<Long>>          changed;
+    private        final Map<Location, Position>  positions;
+    private              boolean                  recordChanges;
+
+
+    // ******************** Constructors **************************************
+    public LocationClusters() {
+        levels    = new ArrayList<>(LEVELS);
+        changed   = new ArrayList<>(LEVELS);
+        positions = new IdentityHashMap<>();
+        for (int level = 0 ; level < LEVELS ; level++) {
+            levels.add(new HashMap<>());
+            changed.add(new HashSet<>());
+        }
+        recordChanges = true;
+    }
+
+
+    // ******************** Methods *******************************************
+    /**
+     * Creates the cluster hierarchy of the given locations, e.g. on a background thread.
+     * @param LOCATIONS the locations to cluster
+     * @return the cluster hierarchy of the given locations
+     */
+    public static LocationClusters create(final Collection<Location> LOCATIONS) {
+        LocationClusters clusters = new LocationClusters();
+        // nothing has been shown yet, so there is no need to record the changes
+        clusters.recordChanges = false;
+        for (Location location : LOCATIONS) { clusters.add(location); }
+        clusters.recordChanges = true;
+        return clusters;
+    }
+
+    /**
+     * @param RENDER_SCALE the number of pixels per unit in map space
+     * @return the level whose cells have about the size of {@link #CELL_SIZE} pixels at the given scale
+     */
+    public static int getLevel(final double RENDER_SCALE) {
+        int level = (int) Math.floor(Math.log(Math.max(1, RENDER_SCALE)) / Math.log(2));
+        return Math.max(0, Math.min(LEVELS - 1, level));
+    }
+
+    /**
+     * @param LEVEL the level
+     * @return the size of the cells of the given level in map space
+     */
+    public static double getCellSize(final int LEVEL) { return CELL_SIZE / (1 << LEVEL); }
+
+    public synchronized int size() { return positions.size(); }
+
+    public synchronized boolean contains(final Location LOCATION) { return positions.containsKey(LOCATION); }
+
+    public synchronized void add(final Location LOCATION) {
+        if (positions.containsKey(LOCATION)) { remove(LOCATION); }
+        double[] xy       = World.latLonToXY(Math.max(-LocationIndex.MAX_LATITUDE, Math.min(LocationIndex.MAX_LATITUDE, LOCATION.getLatitude())), LOCATION.getLongitude());
+        Position position = new Position(xy[0], xy[1]);
+        positions.put(LOCATION, position);
+        for (int level = 0 ; level < LEVELS ; level++) {
+            long    key     = key(level, position.x, position.y);
+            Cluster cluster = levels.get(level).get(key);
+            if (null == cluster) {
+                cluster = new Cluster(level, key, position.x, position.y);
+                levels.get(level).put(key, cluster);
+            }
+            position.indices[level] = cluster.add(LOCATION, position.x, position.y);
+            if (recordChanges) { changed.get(level).add(key); }
+        }
+    }
+
+    public synchronized boolean remove(final Location LOCATION) {
+        Position position = positions.remove(LOCATION);
+        if (null == position) { return false; }
+        for (int level = 0 ; level < LEVELS ; level++) {
+            long     key     = key(level, position.x, position.y);
+            Cluster  cluster = levels.get(level).get(key);
+            Location moved   = cluster.remove(position.indices[level], position.x, position.y);
+            if (null != moved) { positions.get(moved).indices[level] = position.indices[level]; }
+            if (cluster.getCount() == 0) { levels.get(level).remove(key); }
+            changed.get(level).add(key);
+        }
+        return true;
+    }
+
+    /**
+     * Moves the location to its current coordinates, has to be called after its latitude or longitude changed.
+     * @param LOCATION the location that has been moved
+     */
+    public synchronized void update(final Location LOCATION) {
+        if (positions.containsKey(LOCATION)) { add(LOCATION); }
+    }
+
+    public synchronized void clear() {
+        for (int level = 0 ; level < LEVELS ; level++) {
+            changed.get(level).addAll(levels.get(level).keySet());
+            levels.get(level).clear();
+        }
+        positions.clear();
+    }
+
+    /**
+     * @param LEVEL the level
+     * @param KEY   the key of the cell
+     * @return the cluster of the given cell or null if the cell is empty
+     */
+    public synchronized Cluster getCluster(final int LEVEL, final long KEY) { return levels.get(LEVEL).get(KEY); }
+
+    /**
+     * @param LEVEL the level
+     * @param AREA  the area in map space
+     * @return all clusters of the given level whose cells intersect the given area
+     */
+    public synchronized List<Cluster> getClusters(final int LEVEL, final Bounds AREA) {
+        final double         CELL     = getCellSize(LEVEL);
+        Map<Long, Cluster>   cells    = levels.get(LEVEL);
+        List<Cluster>        clusters = new ArrayList<>();
+        long minColumn = (long) Math.floor(AREA.getMinX() / CELL);
+        long maxColumn = (long) Math.floor(AREA.getMaxX() / CELL);
+        long minRow    = (long) Math.floor(AREA.getMinY() / CELL);
+        long maxRow    = (long) Math.floor(AREA.getMaxY() / CELL);
+        if ((maxColumn - minColumn + 1) * (maxRow - minRow + 1) > cells.size()) {
+            // more cells in the area than clusters on this level
+            for (Cluster cluster : cells.values()) {
+                if (cluster.column >= minColumn && cluster.column <= maxColumn && cluster.row >= minRow && cluster.row <= maxRow) { clusters.add(cluster); }
+            }
+            return clusters;
+        }
+        for (long row = minRow ; row <= maxRow ; row++) {
+            for (long column = minColumn ; column <= maxColumn ; column++) {
+                Cluster cluster = cells.get(key(column, row));
+                if (null != cluster) { clusters.add(cluster); }
+            }
+        }
+        return clusters;
+    }
+
+    /**
+     * @param LEVEL the level
+     * @return the keys of the cells of the given level that changed since the last call
+     */
+    public synchronized Set<Long> drainChanges(final int LEVEL) {
+        Set<Long> keys = changed.get(LEVEL);
+        changed.set(LEVEL, new HashSet<>());
+        return keys;
+    }
+
+    private static long key(final int LEVEL, final double X, final double Y) {
+        final double CELL = getCellSize(LEVEL);
+        return key((long) Math.floor(X / CELL), (long) Math.floor(Y / CELL));
+    }
+    private static long key(final long COLUMN, final long ROW) {
+        // Long.hashCode() would be COLUMN ^ ROW which collides along every diagonal of the grid,
+        // multiplying with an odd constant keeps the key unique but spreads the bits
+        return (COLUMN << 32 | (ROW & 0xFFFFFFFFL)) * 0x9E3779B97F4A7C15L;
+    }
+
+
+    // ******************** Inner Classes *************************************
+    /**
+     * All locations of one cell. Clusters are updated in place when locations are added or removed.
+     */
+    public static class Cluster {
+        private final int            level;
+        private final long           key;
+        private final int            column;
+        private final int            row;
+        private final List<Location> locations;
+        private       double         sumX;
+        private       double         sumY;
+
+
+        // ******************** Constructors **********************************
+        Cluster(final int LEVEL, final long KEY, final double X, final double Y) {
+            final double CELL = getCellSize(LEVEL);
+            level     = LEVEL;
+            key       = KEY;
+            column    = (int) Math.floor(X / CELL);
+            row       = (int) Math.floor(Y / CELL);
+            locations = new ArrayList<>(1);
+        }
+
+
+        // ******************** Methods ***************************************
+        public int getLevel() { return level; }
+
+        /**
+         * @return the key of the cell of this cluster, unique within its level
+         */
+        public long getKey() { return key; }
+
+        public synchronized int getCount() { return locations.size(); }
+
+        /**
+         * @return the x coordinate of the center of all locations of this cluster in map space
+         */
+        public synchronized double getX() { return sumX / locations.size(); }
+
+        /**
+         * @return the y coordinate of the center of all locations of this cluster in map space
+         */
+        public synchronized double getY() { return sumY / locations.size(); }
+
+        public synchronized List<Location> getLocations() { return Collections.unmodifiableList(new ArrayList<>(locations)); }
+
+        /**
+         * @return the first location of this cluster, e.g. to show a single location as it is
+         */
+        public synchronized Location getLocation() { return locations.isEmpty() ? null : locations.get(0); }
+
+        synchronized int add(final Location LOCATION, final double X, final double Y) {
+            locations.add(LOCATION);
+            sumX += X;
+            sumY += Y;
+            return locations.size() - 1;
+        }
+
+        /**
+         * The order does not matter, so the last location takes the place of the removed one.
+         * @return the location that has been moved to the index of the removed one or null
+         */
+        synchronized Location remove(final int INDEX, final double X, final double Y) {
+            Location last = locations.remove(locations.size() - 1);
+            sumX -= X;
+            sumY -= Y;
+            if (INDEX == locations.size()) { return null; }
+            locations.set(INDEX, last);
+            return last;
+        }
+    }
+
+    private static class Position {
+        final double x;
+        final double y;
+        final int[]  indices;
+
+
+        // ******************** Constructors **********************************
+        Position(final double X, final double Y) {
+            x       = X;
+            y       = Y;
+            indices = new int[LEVELS];
+        }
+    }
+}
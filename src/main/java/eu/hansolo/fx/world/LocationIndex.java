@@ -0,0 +1,343 @@
+/*
+ * Copyright (c) 2016 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.world;
+
+import javafx.geometry.Bounds;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Quadtree over the projected coordinates (see {@link World#latLonToXY(double, double)})
+ * of locations. It is updated incrementally when locations are added or removed
+ * and answers bounding box, radius and k-nearest queries without scanning all locations.
+ * Locations that change their coordinates have to be {@link #update(Location) updated}.
+ * All methods are thread safe.
+ */
+public class LocationIndex {
+    /**
+     * Latitudes are clamped to the limit of the mercator projection.
+     */
+    public  static final double              MAX_LATITUDE  = 85.05112878;
+    private static final double              EARTH_RADIUS  = 6_371_000; // [m]
+    private static final double              MAX_DISTANCE  = Math.PI * EARTH_RADIUS;
+    private static final int                 CAPACITY      = 16;
+    private static final int                 MAX_DEPTH     = 24;
+    private        final Map<Location, Entry> entries;
+    private        final Node                root;
+
+
+    // ******************** Constructors **************************************
+    public LocationIndex() {
+        double[] upperLeft  = World.latLonToXY(MAX_LATITUDE, -180);
+        double[] lowerRight = World.latLonToXY(-MAX_LATITUDE, 180);
+        entries = new IdentityHashMap<>();
+        root    = new Node(upperLeft[0], upperLeft[1], lowerRight[0], lowerRight[1], 0);
+    }
+
+
+    // ******************** Methods *******************************************
+    public synchronized int size() { return entries.size(); }
+
+    public synchronized boolean contains(final Location LOCATION) { return entries.containsKey(LOCATION); }
+
+    /**
+     * Adds the location or updates its position if it is already part of the index.
+     * @param LOCATION the location to add
+     */
+    public synchronized void add(final Location LOCATION) {
+        Entry former = entries.remove(LOCATION);
+        if (null != former) { root.remove(former); }
+        Entry entry = new Entry(LOCATION);
+        entries.put(LOCATION, entry);
+        root.add(entry);
+    }
+
+    public synchronized void addAll(final Collection<Location> LOCATIONS) {
+        for (Location location : LOCATIONS) { add(location); }
+    }
+
+    public synchronized boolean remove(final Location LOCATION) {
+        Entry entry = entries.remove(LOCATION);
+        if (null == entry) { return false; }
+        root.remove(entry);
+        return true;
+    }
+
+    /**
+     * Moves the location to its current coordinates, has to be called after its latitude or longitude changed.
+     * @param LOCATION the location that has been moved
+     */
+    public synchronized void update(final Location LOCATION) {
+        if (entries.containsKey(LOCATION)) { add(LOCATION); }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        root.clear();
+    }
+
+    /**
+     * @return all locations of this index
+     */
+    public synchronized List<Location> getLocations() { return new ArrayList<>(entries.keySet()); }
+
+    /**
+     * @param AREA the area in map space, e.g. the visible part of the map
+     * @return all locations inside the given area of the map
+     */
+    public synchronized List<Location> getLocations(final Bounds AREA) {
+        List<Location> result = new ArrayList<>();
+        root.query(AREA.getMinX(), AREA.getMinY(), AREA.getMaxX(), AREA.getMaxY(), result);
+        return result;
+    }
+
+    /**
+     * @param MIN_LATITUDE  southern border
+     * @param MIN_LONGITUDE western border, if it is larger than the eastern border the area crosses the antimeridian
+     * @param MAX_LATITUDE  northern border
+     * @param MAX_LONGITUDE eastern border
+     * @return all locations inside the given area
+     */
+    public synchronized List<Location> getLocations(final double MIN_LATITUDE, final double MIN_LONGITUDE, final double MAX_LATITUDE, final double MAX_LONGITUDE) {
+        List<Location> result = new ArrayList<>();
+        if (MIN_LONGITUDE > MAX_LONGITUDE) {
+            queryLatLon(MIN_LATITUDE, MIN_LONGITUDE, MAX_LATITUDE, 180, result);
+            queryLatLon(MIN_LATITUDE, -180, MAX_LATITUDE, MAX_LONGITUDE, result);
+        } else {
+            queryLatLon(MIN_LATITUDE, MIN_LONGITUDE, MAX_LATITUDE, MAX_LONGITUDE, result);
+        }
+        return result;
+    }
+
+    /**
+     * @param LATITUDE  latitude of the center
+     * @param LONGITUDE longitude of the center
+     * @param RADIUS    the radius in meter
+     * @return all locations whose great circle distance to the center is not larger than the radius
+     */
+    public synchronized List<Location> getLocationsWithin(final double LATITUDE, final double LONGITUDE, final double RADIUS) {
+        List<Entry> candidates = new ArrayList<>();
+        collectCandidates(LATITUDE, LONGITUDE, RADIUS, candidates);
+        List<Location> result = new ArrayList<>();
+        for (Entry entry : candidates) {
+            if (entry.location.calcDistanceInMeter(LATITUDE, LONGITUDE, entry.latitude, entry.longitude) <= RADIUS) { result.add(entry.location); }
+        }
+        return result;
+    }
+
+    /**
+     * The search radius starts at the radius that is expected to contain K locations
+     * if they were evenly distributed and is doubled until enough locations are found.
+     * @param LATITUDE  latitude of the center
+     * @param LONGITUDE longitude of the center
+     * @param K         the number of locations
+     * @return the K locations that are closest to the center ordered by their great circle distance
+     */
+    public synchronized List<Location> getNearest(final double LATITUDE, final double LONGITUDE, final int K) {
+        final int COUNT = Math.min(K, entries.size());
+        if (COUNT <= 0) { return new ArrayList<>(); }
+        double radius = Math.max(1, 2 * EARTH_RADIUS * Math.sqrt(COUNT / (double) entries.size()));
+        while (true) {
+            List<Entry> candidates = new ArrayList<>();
+            collectCandidates(LATITUDE, LONGITUDE, radius, candidates);
+            List<double[]> hits = new ArrayList<>(candidates.size());
+            for (int i = 0 ; i < candidates.size() ; i++) {
+                Entry  entry    = candidates.get(i);
+                double distance = entry.location.calcDistanceInMeter(LATITUDE, LONGITUDE, entry.latitude, entry.longitude);
+                if (distance <= radius) { hits.add(new double[] { distance, i }); }
+            }
+            // all locations within the radius are known, so the closest K of them are the closest K overall
+            if (hits.size() >= COUNT || radius >= MAX_DISTANCE) {
+                hits.sort(Comparator.comparingDouble(hit -> hit[0]));
+                List<Location> result = new ArrayList<>(COUNT);
+                for (int i = 0 ; i < Math.min(COUNT, hits.size()) ; i++) { result.add(candidates.get((int) hits.get(i)[1]).location); }
+                return result;
+            }
+            radius = Math.min(MAX_DISTANCE, radius * 2);
+        }
+    }
+
+    private void collectCandidates(final double LATITUDE, final double LONGITUDE, final double RADIUS, final List<Entry> RESULT) {
+        final double DELTA_LAT = Math.toDegrees(RADIUS / EARTH_RADIUS);
+        final double MIN_LAT   = LATITUDE - DELTA_LAT;
+        final double MAX_LAT   = LATITUDE + DELTA_LAT;
+        if (MIN_LAT <= -90 || MAX_LAT >= 90) {
+            // the circle contains a pole and therefore all longitudes
+            root.collect(root.minX, latLonToY(MAX_LAT), root.maxX, latLonToY(MIN_LAT), RESULT);
+            return;
+        }
+        final double DELTA_LON = Math.toDegrees(Math.asin(Math.min(1, Math.sin(RADIUS / EARTH_RADIUS) / Math.cos(Math.toRadians(LATITUDE)))));
+        final double MIN_LON   = LONGITUDE - DELTA_LON;
+        final double MAX_LON   = LONGITUDE + DELTA_LON;
+        if (DELTA_LON >= 180 || MAX_LON - MIN_LON >= 360) {
+            collectLatLon(MIN_LAT, -180, MAX_LAT, 180, RESULT);
+        } else if (MIN_LON < -180) {
+            collectLatLon(MIN_LAT, MIN_LON + 360, MAX_LAT, 180, RESULT);
+            collectLatLon(MIN_LAT, -180, MAX_LAT, MAX_LON, RESULT);
+        } else if (MAX_LON > 180) {
+            collectLatLon(MIN_LAT, MIN_LON, MAX_LAT, 180, RESULT);
+            collectLatLon(MIN_LAT, -180, MAX_LAT, MAX_LON - 360, RESULT);
+        } else {
+            collectLatLon(MIN_LAT, MIN_LON, MAX_LAT, MAX_LON, RESULT);
+        }
+    }
+
+    private void collectLatLon(final double MIN_LAT, final double MIN_LON, final double MAX_LAT, final double MAX_LON, final List<Entry> RESULT) {
+        double[] upperLeft  = project(MAX_LAT, MIN_LON);
+        double[] lowerRight = project(MIN_LAT, MAX_LON);
+        root.collect(upperLeft[0], upperLeft[1], lowerRight[0], lowerRight[1], RESULT);
+    }
+
+    private void queryLatLon(final double MIN_LAT, final double MIN_LON, final double MAX_LAT, final double MAX_LON, final List<Location> RESULT) {
+        double[] upperLeft  = project(MAX_LAT, MIN_LON);
+        double[] lowerRight = project(MIN_LAT, MAX_LON);
+        root.query(upperLeft[0], upperLeft[1], lowerRight[0], lowerRight[1], RESULT);
+    }
+
+    private static double latLonToY(final double LATITUDE) { return project(LATITUDE, 0)[1]; }
+
+    private static double[] project(final double LATITUDE, final double LONGITUDE) {
+        return World.latLonToXY(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, LATITUDE)), Math.max(-180, Math.min(180, LONGITUDE)));
+    }
+
+
+    // ******************** Inner Classes *************************************
+    private static class Entry {
+        final Location location;
+        final double   latitude;
+        final double   longitude;
+        final double   x;
+        final double   y;
+
+
+        // ******************** Constructors **********************************
+        Entry(final Location LOCATION) {
+            location  = LOCATION;
+            latitude  = LOCATION.getLatitude();
+            longitude = LOCATION.getLongitude();
+            double[] xy = project(latitude, longitude);
+            x = xy[0];
+            y = xy[1];
+        }
+    }
+
+    private static class Node {
+        final double      minX;
+        final double      minY;
+        final double      maxX;
+        final double      maxY;
+        final int         depth;
+        List<Entry>       entries;
+        Node[]            children;
+        int               count;
+
+
+        // ******************** Constructors **********************************
+        Node(final double MIN_X, final double MIN_Y, final double MAX_X, final double MAX_Y, final int DEPTH) {
+            minX    = MIN_X;
+            minY    = MIN_Y;
+            maxX    = MAX_X;
+            maxY    = MAX_Y;
+            depth   = DEPTH;
+            entries = new ArrayList<>(CAPACITY);
+        }
+
+
+        // ******************** Methods ***************************************
+        void add(final Entry ENTRY) {
+            count++;
+            if (null != children) {
+                child(ENTRY).add(ENTRY);
+                return;
+            }
+            entries.add(ENTRY);
+            if (entries.size() > CAPACITY && depth < MAX_DEPTH) { split(); }
+        }
+
+        boolean remove(final Entry ENTRY) {
+            boolean removed;
+            if (null == children) {
+                removed = entries.remove(ENTRY);
+            } else {
+                removed = child(ENTRY).remove(ENTRY);
+                if (removed && count - 1 <= CAPACITY / 2) { merge(); }
+            }
+            if (removed) { count--; }
+            return removed;
+        }
+
+        void clear() {
+            entries  = new ArrayList<>(CAPACITY);
+            children = null;
+            count    = 0;
+        }
+
+        void query(final double MIN_X, final double MIN_Y, final double MAX_X, final double MAX_Y, final List<Location> RESULT) {
+            if (count == 0 || MAX_X < minX || MIN_X > maxX || MAX_Y < minY || MIN_Y > maxY) { return; }
+            if (null == children) {
+                for (Entry entry : entries) {
+                    if (entry.x >= MIN_X && entry.x <= MAX_X && entry.y >= MIN_Y && entry.y <= MAX_Y) { RESULT.add(entry.location); }
+                }
+            } else {
+                for (Node child : children) { child.query(MIN_X, MIN_Y, MAX_X, MAX_Y, RESULT); }
+            }
+        }
+
+        void collect(final double MIN_X, final double MIN_Y, final double MAX_X, final double MAX_Y, final List<Entry> RESULT) {
+            if (count == 0 || MAX_X < minX || MIN_X > maxX || MAX_Y < minY || MIN_Y > maxY) { return; }
+            if (null == children) {
+                for (Entry entry : entries) {
+                    if (entry.x >= MIN_X && entry.x <= MAX_X && entry.y >= MIN_Y && entry.y <= MAX_Y) { RESULT.add(entry); }
+                }
+            } else {
+                for (Node child : children) { child.collect(MIN_X, MIN_Y, MAX_X, MAX_Y, RESULT); }
+            }
+        }
+
+        private Node child(final Entry ENTRY) {
+            double centerX = (minX + maxX) * 0.5;
+            double centerY = (minY + maxY) * 0.5;
+            return children[(ENTRY.x < centerX ? 0 : 1) + (ENTRY.y < centerY ? 0 : 2)];
+        }
+
+        private void split() {
+            double centerX = (minX + maxX) * 0.5;
+            double centerY = (minY + maxY) * 0.5;
+            children = new Node[] {
+                new Node(minX, minY, centerX, centerY, depth + 1),
+                new Node(centerX, minY, maxX, centerY, depth + 1),
+                new Node(minX, centerY, centerX, maxY, depth + 1),
+                new Node(centerX, centerY, maxX, maxY, depth + 1)
+            };
+            for (Entry entry : entries) { child(entry).add(entry); }
+            entries = null;
+        }
+
+        private void merge() {
+            List<Entry> merged = new ArrayList<>(CAPACITY);
+            for (Node child : children) { child.collect(minX, minY, maxX, maxY, merged); }
+            children = null;
+            entries  = merged;
+        }
+    }
+}
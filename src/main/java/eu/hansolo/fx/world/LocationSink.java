@@ -0,0 +1,350 @@
+/*
+ * Copyright (c) 2016 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.world;
+
+import javafx.application.Platform;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+
+/**
+ * Streaming ingest of location changes, see {@link World#locationSink()}.
+ * Adds, moves and removals can be offered from any thread without locking.
+ * Changes of the same location are coalesced while they are pending, e.g. a
+ * location that is moved a hundred times between two pulses is moved only
+ * once. All pending changes are applied as one batch per pulse on the FX
+ * application thread.
+ * The number of pending locations is bounded by the capacity, if it is reached
+ * the {@link OverflowPolicy} decides whether the oldest change is dropped or
+ * the calling thread is blocked until the next batch has been applied.
+ */
+public class LocationSink {
+    public enum OverflowPolicy { DROP_OLDEST, BLOCK }
+
+    public  static final int                                  DEFAULT_CAPACITY = 65_536;
+    private        final int                                  capacity;
+    private        final OverflowPolicy                       overflowPolicy;
+    private        final ConcurrentHashMap<Location, Change>  pending;
+    private        final ConcurrentLinkedQueue<Location>      order;
+    private        final Semaphore                            permits;
+    private        final AtomicBoolean                        drainPending;
+    private        final Executor                             publisher;
+    private        final Consumer<Batch>                      consumer;
+    private        final LongAdder                            offered;
+    private        final LongAdder                            coalesced;
+    private        final LongAdder                            dropped;
+    private        final LongAdder                            batches;
+    private        final LongAdder                            applied;
+    private        volatile Thread                            publisherThread;
+
+
+    // ******************** Constructors **************************************
+    LocationSink(final int CAPACITY, final OverflowPolicy POLICY, final Consumer<Batch> CONSUMER) {
+        this(CAPACITY, POLICY, Platform::runLater, CONSUMER);
+    }
+    /**
+     * @param CAPACITY  the maximum number of locations with pending changes
+     * @param POLICY    what to do if the capacity is reached
+     * @param PUBLISHER the executor the batches are applied on, the FX application thread by default
+     * @param CONSUMER  applies a batch of changes
+     */
+    LocationSink(final int CAPACITY, final OverflowPolicy POLICY, final Executor PUBLISHER, final Consumer<Batch> CONSUMER) {
+        if (CAPACITY < 1) { throw new IllegalArgumentException("CAPACITY must be at least 1"); }
+        if (null == POLICY) { throw new IllegalArgumentException("POLICY must not be null"); }
+        capacity       = CAPACITY;
+        overflowPolicy = POLICY;
+        pending        = new ConcurrentHashMap<>(Math.min(CAPACITY, 4096) * 2);
+        order          = new ConcurrentLinkedQueue<>();
+        permits        = new Semaphore(CAPACITY);
+        drainPending   = new AtomicBoolean(false);
+        publisher      = PUBLISHER;
+        consumer       = CONSUMER;
+        offered        = new LongAdder();
+        coalesced      = new LongAdder();
+        dropped        = new LongAdder();
+        batches        = new LongAdder();
+        applied        = new LongAdder();
+        // a blocked publisher thread would never apply the batch it waits for, so it has to be known
+        publisher.execute(() -> publisherThread = Thread.currentThread());
+    }
+
+
+    // ******************** Methods *******************************************
+    /**
+     * Adds the location to the world with the next batch.
+     * @param LOCATION the location to add
+     * @return false if the change was dropped because the calling thread was interrupted while blocked
+     */
+    public boolean add(final Location LOCATION) { return offer(LOCATION, new Change(Change.ADD, Double.NaN, Double.NaN)); }
+
+    /**
+     * Moves the location to the given coordinates with the next batch. The coordinates
+     * of the location are set on the FX application thread, so the location should not
+     * be modified directly while it is part of the world.
+     * @param LOCATION  the location to move
+     * @param LATITUDE  the new latitude
+     * @param LONGITUDE the new longitude
+     * @return false if the change was dropped because the calling thread was interrupted while blocked
+     */
+    public boolean update(final Location LOCATION, final double LATITUDE, final double LONGITUDE) { return offer(LOCATION, new Change(Change.UPDATE, LATITUDE, LONGITUDE)); }
+
+    /**
+     * Removes the location from the world with the next batch.
+     * @param LOCATION the location to remove
+     * @return false if the change was dropped because the calling thread was interrupted while blocked
+     */
+    public boolean remove(final Location LOCATION) { return offer(LOCATION, new Change(Change.REMOVE, Double.NaN, Double.NaN)); }
+
+    /**
+     * Applies all pending changes right away instead of waiting for the next pulse.
+     * Must be called on the thread the batches are applied on.
+     */
+    public void flush() {
+        // reset the flag before draining so that changes after the drain schedule a new batch
+        drainPending.set(false);
+        publisherThread = Thread.currentThread();
+        Batch batch = new Batch();
+        // limit the batch so that a fast producer can't keep the FX application thread busy forever
+        for (int i = 0 ; i < capacity ; i++) {
+            Location location = order.poll();
+            if (null == location) { break; }
+            Change change = pending.remove(location);
+            if (null == change) { continue; }
+            permits.release();
+            batch.add(location, change);
+        }
+        if (!order.isEmpty()) { scheduleDrain(); }
+        if (batch.isEmpty()) { return; }
+        batches.increment();
+        applied.add(batch.size());
+        consumer.accept(batch);
+    }
+
+    public int getCapacity() { return capacity; }
+
+    public OverflowPolicy getOverflowPolicy() { return overflowPolicy; }
+
+    /**
+     * @return the number of locations with changes that have not been applied yet
+     */
+    public int getPendingCount() { return pending.size(); }
+
+    /**
+     * @return the number of changes that have been offered to this sink
+     */
+    public long getOfferedCount() { return offered.sum(); }
+
+    /**
+     * @return the number of changes that have been merged into a pending change of the same location
+     */
+    public long getCoalescedCount() { return coalesced.sum(); }
+
+    /**
+     * @return the number of changes that have been dropped because the sink was full
+     */
+    public long getDroppedCount() { return dropped.sum(); }
+
+    /**
+     * @return the number of batches that have been applied
+     */
+    public long getBatchCount() { return batches.sum(); }
+
+    /**
+     * @return the number of changes that have been applied
+     */
+    public long getAppliedCount() { return applied.sum(); }
+
+    @Override public String toString() {
+        return new StringBuilder().append("LocationSink[pending=").append(getPendingCount()).append("/").append(capacity)
+                                  .append(", offered=").append(getOfferedCount())
+                                  .append(", coalesced=").append(getCoalescedCount())
+                                  .append(", dropped=").append(getDroppedCount())
+                                  .append(", batches=").append(getBatchCount())
+                                  .append(", applied=").append(getAppliedCount())
+                                  .append("]").toString();
+    }
+
+    private boolean offer(final Location LOCATION, final Change CHANGE) {
+        if (null == LOCATION) { throw new IllegalArgumentException("LOCATION must not be null"); }
+        offered.increment();
+        while (true) {
+            if (null != pending.computeIfPresent(LOCATION, (location, former) -> former.merge(CHANGE))) {
+                coalesced.increment();
+                return true;
+            }
+            if (!acquire()) {
+                dropped.increment();
+                return false;
+            }
+            if (null == pending.putIfAbsent(LOCATION, CHANGE)) {
+                order.offer(LOCATION);
+                scheduleDrain();
+                return true;
+            }
+            // another thread added a change for the same location in the meantime, merge with it
+            permits.release();
+        }
+    }
+
+    private boolean acquire() {
+        if (permits.tryAcquire()) { return true; }
+        scheduleDrain();
+        if (OverflowPolicy.DROP_OLDEST == overflowPolicy) {
+            while (!permits.tryAcquire()) {
+                Location oldest = order.poll();
+                if (null == oldest) {
+                    // the permits are taken by changes that are about to be queued
+                    Thread.yield();
+                } else if (null != pending.remove(oldest)) {
+                    // take over the permit of the dropped change
+                    dropped.increment();
+                    return true;
+                }
+            }
+            return true;
+        }
+        while (true) {
+            if (Thread.currentThread() == publisherThread) {
+                flush();
+                if (permits.tryAcquire()) { return true; }
+                Thread.yield();
+                continue;
+            }
+            try {
+                permits.acquire();
+                return true;
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    private void scheduleDrain() {
+        if (drainPending.compareAndSet(false, true)) { publisher.execute(this::flush); }
+    }
+
+
+    // ******************** Inner Classes *************************************
+    private static class Change {
+        private static final int    ADD    = 0;
+        private static final int    UPDATE = 1;
+        private static final int    REMOVE = 2;
+        private        final int    type;
+        private        final double latitude;
+        private        final double longitude;
+
+
+        // ******************** Constructors **********************************
+        Change(final int TYPE, final double LATITUDE, final double LONGITUDE) {
+            type      = TYPE;
+            latitude  = LATITUDE;
+            longitude = LONGITUDE;
+        }
+
+
+        // ******************** Methods ***************************************
+        boolean isMove() { return !Double.isNaN(latitude); }
+
+        Change merge(final Change CHANGE) {
+            switch (CHANGE.type) {
+                case ADD   : return isMove() && REMOVE != type ? new Change(ADD, latitude, longitude) : CHANGE;
+                // a removed location stays removed
+                case UPDATE: return REMOVE == type ? this : new Change(type, CHANGE.latitude, CHANGE.longitude);
+                default    : return CHANGE;
+            }
+        }
+    }
+
+    /**
+     * The coalesced changes that are applied in one go.
+     */
+    static class Batch {
+        private final List<Location> added;
+        private final List<Location> moved;
+        private final List<Location> removed;
+        private       double[]       latitudes;
+        private       double[]       longitudes;
+        private       int            size;
+
+
+        // ******************** Constructors **********************************
+        Batch() {
+            added      = new ArrayList<>();
+            moved      = new ArrayList<>();
+            removed    = new ArrayList<>();
+            latitudes  = new double[16];
+            longitudes = new double[16];
+        }
+
+
+        // ******************** Methods ***************************************
+        private void add(final Location LOCATION, final Change CHANGE) {
+            size++;
+            if (CHANGE.isMove()) {
+                if (moved.size() == latitudes.length) {
+                    latitudes  = Arrays.copyOf(latitudes, latitudes.length * 2);
+                    longitudes = Arrays.copyOf(longitudes, longitudes.length * 2);
+                }
+                latitudes[moved.size()]  = CHANGE.latitude;
+                longitudes[moved.size()] = CHANGE.longitude;
+                moved.add(LOCATION);
+            }
+            switch (CHANGE.type) {
+                case Change.ADD   : added.add(LOCATION); break;
+                case Change.REMOVE: removed.add(LOCATION); break;
+                default           : break;
+            }
+        }
+
+        /**
+         * @return the number of locations that changed
+         */
+        int size() { return size; }
+
+        boolean isEmpty() { return size() == 0; }
+
+        /**
+         * Sets the coordinates of all moved locations, has to be called before the locations are updated.
+         */
+        void applyCoordinates() {
+            for (int i = 0 ; i < moved.size() ; i++) {
+                moved.get(i).setLatitude(latitudes[i]);
+                moved.get(i).setLongitude(longitudes[i]);
+            }
+        }
+
+        List<Location> getAdded() { return Collections.unmodifiableList(added); }
+
+        /**
+         * @return the locations whose coordinates changed, includes added locations that have been moved before they were added
+         */
+        List<Location> getMoved() { return Collections.unmodifiableList(moved); }
+
+        List<Location> getRemoved() { return Collections.unmodifiableList(removed); }
+    }
+}
@@ -0,0 +1,464 @@
+/*
+ * Copyright (c) 2016 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.world;
+
+import javafx.scene.paint.Color;
+import org.kordamp.ikonli.Ikon;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.IntConsumer;
+
+
+/**
+ * Columnar storage of a large number of locations in parallel primitive arrays.
+ * A point only consists of its coordinates, its projected position in map space,
+ * the index of its {@link Style} and an optional id, which needs a fraction of the
+ * memory of a {@link Location}. Points are addressed by their index and can be
+ * iterated and queried without boxing.
+ * The store is shown by a {@link World} via {@link World#setLocationStore(LocationStore)},
+ * locations that need a name, tooltip or mouse handlers should be added as a
+ * {@link Location} instead, see {@link #toLocationBuilder(int)}.
+ * The store is not thread safe. It can be filled on any thread before it is
+ * shown but must only be modified on the FX application thread afterwards.
+ */
+public class LocationStore {
+    public  static final int                     DEFAULT_STYLE     = 0;
+    private static final int                     DEFAULT_ICON_SIZE = 12;
+    private static final double                  CELL_SIZE         = 4;
+    private static final double                  MIN_X;
+    private static final double                  MIN_Y;
+    private static final int                     COLUMNS;
+    private static final int                     ROWS;
+    private              double[]                latitudes;
+    private              double[]                longitudes;
+    private              float[]                 xs;
+    private              float[]                 ys;
+    private              int[]                   styles;
+    private              long[]                  ids;
+    private              int                     size;
+    private        final List<Style>             styleTable;
+    private        final Map<Style, Integer>     styleIndices;
+    private        final List<Runnable>          listeners;
+    private              int[]                   cellStarts;
+    private              int[]                   cellPoints;
+    private              boolean                 gridValid;
+    static {
+        double[] upperLeft  = World.latLonToXY(LocationIndex.MAX_LATITUDE, -180);
+        double[] lowerRight = World.latLonToXY(-LocationIndex.MAX_LATITUDE, 180);
+        MIN_X   = upperLeft[0];
+        MIN_Y   = upperLeft[1];
+        COLUMNS = (int) Math.ceil((lowerRight[0] - upperLeft[0]) / CELL_SIZE) + 1;
+        ROWS    = (int) Math.ceil((lowerRight[1] - upperLeft[1]) / CELL_SIZE) + 1;
+    }
+
+
+    // ******************** Constructors **************************************
+    public LocationStore() {
+        this(1024);
+    }
+    public LocationStore(final int INITIAL_CAPACITY) {
+        final int CAPACITY = Math.max(16, INITIAL_CAPACITY);
+        latitudes    = new double[CAPACITY];
+        longitudes   = new double[CAPACITY];
+        xs           = new float[CAPACITY];
+        ys           = new float[CAPACITY];
+        styles       = new int[CAPACITY];
+        styleTable   = new ArrayList<>();
+        styleIndices = new HashMap<>();
+        listeners    = new CopyOnWriteArrayList<>();
+        addStyle(null, DEFAULT_ICON_SIZE, null);
+    }
+
+
+    // ******************** Methods *******************************************
+    public int size() { return size; }
+
+    public boolean isEmpty() { return 0 == size; }
+
+    /**
+     * @param ICON_CODE the icon or null to use the icon of the world
+     * @param ICON_SIZE the size of the icon
+     * @param COLOR     the color or null to use the location color of the world
+     * @return the index of the style, styles that are equal share one index
+     */
+    public int addStyle(final Ikon ICON_CODE, final int ICON_SIZE, final Color COLOR) {
+        Style   style = new Style(ICON_CODE, Math.max(Location.MIN_ICON_SIZE, Math.min(Location.MAX_ICON_SIZE, ICON_SIZE)), COLOR);
+        Integer index = styleIndices.get(style);
+        if (null != index) { return index; }
+        styleTable.add(style);
+        styleIndices.put(style, styleTable.size() - 1);
+        return styleTable.size() - 1;
+    }
+
+    public Style getStyle(final int STYLE_INDEX) { return styleTable.get(STYLE_INDEX); }
+
+    public int getStyleCount() { return styleTable.size(); }
+
+    /**
+     * @return the index of the new point
+     */
+    public int add(final double LATITUDE, final double LONGITUDE) { return add(LATITUDE, LONGITUDE, DEFAULT_STYLE); }
+    /**
+     * @return the index of the new point
+     */
+    public int add(final double LATITUDE, final double LONGITUDE, final int STYLE_INDEX) {
+        checkStyle(STYLE_INDEX);
+        ensureCapacity(size + 1);
+        final int INDEX = size++;
+        // the slot might have been used by a removed point
+        if (null != ids) { ids[INDEX] = 0; }
+        set(INDEX, LATITUDE, LONGITUDE, STYLE_INDEX);
+        return INDEX;
+    }
+    /**
+     * @return the index of the new point
+     */
+    public int add(final long ID, final double LATITUDE, final double LONGITUDE, final int STYLE_INDEX) {
+        final int INDEX = add(LATITUDE, LONGITUDE, STYLE_INDEX);
+        setId(INDEX, ID);
+        return INDEX;
+    }
+    /**
+     * Adds the coordinates and the style of the given location, e.g. to move a location
+     * that doesn't need to be interactive anymore into the store.
+     * @return the index of the new point
+     */
+    public int add(final Location LOCATION) {
+        return add(LOCATION.getLatitude(), LOCATION.getLongitude(), addStyle(LOCATION.getIconCode(), LOCATION.getIconSize(), LOCATION.getColor()));
+    }
+
+    /**
+     * Adds the coordinates and the styles of the given locations, the listeners are notified once.
+     * @param LOCATIONS the locations to add
+     */
+    public void addAll(final Collection<Location> LOCATIONS) {
+        ensureCapacity(size + LOCATIONS.size());
+        for (Location location : LOCATIONS) {
+            final int INDEX = size++;
+            latitudes[INDEX]  = location.getLatitude();
+            longitudes[INDEX] = location.getLongitude();
+            styles[INDEX]     = addStyle(location.getIconCode(), location.getIconSize(), location.getColor());
+            if (null != ids) { ids[INDEX] = 0; }
+            project(INDEX);
+        }
+        changed();
+    }
+
+    /**
+     * Bulk loads the given points, all arrays must have the same length.
+     * @param LATITUDES  the latitudes
+     * @param LONGITUDES the longitudes
+     * @param STYLES     the style indices or null to use the default style
+     * @param IDS        the ids or null if the points have no id
+     * @return the index of the first new point
+     */
+    public int addAll(final double[] LATITUDES, final double[] LONGITUDES, final int[] STYLES, final long[] IDS) {
+        final int COUNT = LATITUDES.length;
+        if (LONGITUDES.length != COUNT || (null != STYLES && STYLES.length != COUNT) || (null != IDS && IDS.length != COUNT)) {
+            throw new IllegalArgumentException("All arrays must have the same length");
+        }
+        if (null != STYLES) {
+            for (int style : STYLES) { checkStyle(style); }
+        }
+        final int FIRST = size;
+        ensureCapacity(size + COUNT);
+        System.arraycopy(LATITUDES, 0, latitudes, FIRST, COUNT);
+        System.arraycopy(LONGITUDES, 0, longitudes, FIRST, COUNT);
+        if (null == STYLES) {
+            Arrays.fill(styles, FIRST, FIRST + COUNT, DEFAULT_STYLE);
+        } else {
+            System.arraycopy(STYLES, 0, styles, FIRST, COUNT);
+        }
+        if (null != IDS) {
+            ensureIds();
+            System.arraycopy(IDS, 0, ids, FIRST, COUNT);
+        } else if (null != ids) {
+            Arrays.fill(ids, FIRST, FIRST + COUNT, 0);
+        }
+        for (int i = FIRST ; i < FIRST + COUNT ; i++) { project(i); }
+        size += COUNT;
+        changed();
+        return FIRST;
+    }
+
+    /**
+     * Moves the point with the given index in place.
+     */
+    public void set(final int INDEX, final double LATITUDE, final double LONGITUDE) {
+        checkIndex(INDEX);
+        latitudes[INDEX]  = LATITUDE;
+        longitudes[INDEX] = LONGITUDE;
+        project(INDEX);
+        changed();
+    }
+    public void set(final int INDEX, final double LATITUDE, final double LONGITUDE, final int STYLE_INDEX) {
+        checkIndex(INDEX);
+        checkStyle(STYLE_INDEX);
+        styles[INDEX] = STYLE_INDEX;
+        set(INDEX, LATITUDE, LONGITUDE);
+    }
+
+    public void setStyle(final int INDEX, final int STYLE_INDEX) {
+        checkIndex(INDEX);
+        checkStyle(STYLE_INDEX);
+        styles[INDEX] = STYLE_INDEX;
+        changed();
+    }
+
+    public void setId(final int INDEX, final long ID) {
+        checkIndex(INDEX);
+        ensureIds();
+        ids[INDEX] = ID;
+    }
+
+    /**
+     * Removes the point with the given index by moving the last point to its index.
+     * @param INDEX the index of the point to remove
+     */
+    public void remove(final int INDEX) {
+        checkIndex(INDEX);
+        final int LAST = --size;
+        latitudes[INDEX]  = latitudes[LAST];
+        longitudes[INDEX] = longitudes[LAST];
+        xs[INDEX]         = xs[LAST];
+        ys[INDEX]         = ys[LAST];
+        styles[INDEX]     = styles[LAST];
+        if (null != ids) { ids[INDEX] = ids[LAST]; }
+        changed();
+    }
+
+    public void clear() {
+        size = 0;
+        changed();
+    }
+
+    public double getLatitude(final int INDEX) { checkIndex(INDEX); return latitudes[INDEX]; }
+
+    public double getLongitude(final int INDEX) { checkIndex(INDEX); return longitudes[INDEX]; }
+
+    /**
+     * @return the projected x coordinate in map space
+     */
+    public float getX(final int INDEX) { checkIndex(INDEX); return xs[INDEX]; }
+
+    /**
+     * @return the projected y coordinate in map space
+     */
+    public float getY(final int INDEX) { checkIndex(INDEX); return ys[INDEX]; }
+
+    public int getStyleIndex(final int INDEX) { checkIndex(INDEX); return styles[INDEX]; }
+
+    public boolean hasIds() { return null != ids; }
+
+    /**
+     * @return the id of the point or 0 if no id has been set
+     */
+    public long getId(final int INDEX) {
+        checkIndex(INDEX);
+        return null == ids ? 0 : ids[INDEX];
+    }
+
+    /**
+     * @param ID the id to look for
+     * @return the index of the first point with the given id or -1
+     */
+    public int indexOf(final long ID) {
+        if (null == ids) { return -1; }
+        for (int i = 0 ; i < size ; i++) {
+            if (ids[i] == ID) { return i; }
+        }
+        return -1;
+    }
+
+    /**
+     * Calls the consumer with the index of every point.
+     */
+    public void forEach(final IntConsumer CONSUMER) {
+        for (int i = 0 ; i < size ; i++) { CONSUMER.accept(i); }
+    }
+
+    /**
+     * Calls the consumer with the index of every point whose projected position is inside of the given area.
+     * @param MIN_X    the left border in map space
+     * @param MIN_Y    the upper border in map space
+     * @param MAX_X    the right border in map space
+     * @param MAX_Y    the lower border in map space
+     * @param CONSUMER called with the index of the points
+     */
+    public void forEachInArea(final double MIN_X, final double MIN_Y, final double MAX_X, final double MAX_Y, final IntConsumer CONSUMER) {
+        if (0 == size || MAX_X < MIN_X || MAX_Y < MIN_Y) { return; }
+        validateGrid();
+        final int MIN_COLUMN = column(MIN_X);
+        final int MAX_COLUMN = column(MAX_X);
+        final int MIN_ROW    = row(MIN_Y);
+        final int MAX_ROW    = row(MAX_Y);
+        for (int row = MIN_ROW ; row <= MAX_ROW ; row++) {
+            for (int column = MIN_COLUMN ; column <= MAX_COLUMN ; column++) {
+                final int CELL = row * COLUMNS + column;
+                for (int i = cellStarts[CELL], end = cellStarts[CELL + 1] ; i < end ; i++) {
+                    final int INDEX = cellPoints[i];
+                    if (xs[INDEX] >= MIN_X && xs[INDEX] <= MAX_X && ys[INDEX] >= MIN_Y && ys[INDEX] <= MAX_Y) { CONSUMER.accept(INDEX); }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param X            x coordinate in map space
+     * @param Y            y coordinate in map space
+     * @param MAX_DISTANCE the maximum distance in map space
+     * @return the index of the point that is closest to the given position or -1 if there is none within the distance
+     */
+    public int getNearest(final double X, final double Y, final double MAX_DISTANCE) {
+        final double[] BEST = { MAX_DISTANCE * MAX_DISTANCE, -1 };
+        forEachInArea(X - MAX_DISTANCE, Y - MAX_DISTANCE, X + MAX_DISTANCE, Y + MAX_DISTANCE, index -> {
+            double dx = xs[index] - X;
+            double dy = ys[index] - Y;
+            if (dx * dx + dy * dy <= BEST[0]) {
+                BEST[0] = dx * dx + dy * dy;
+                BEST[1] = index;
+            }
+        });
+        return (int) BEST[1];
+    }
+
+    /**
+     * @param INDEX the index of the point
+     * @return a builder with the coordinates and style of the point, e.g. to add a name and mouse handlers and add it to a world as a {@link Location}
+     */
+    public LocationBuilder<?> toLocationBuilder(final int INDEX) {
+        checkIndex(INDEX);
+        Style style = styleTable.get(styles[INDEX]);
+        LocationBuilder<?> builder = LocationBuilder.create().latitude(latitudes[INDEX]).longitude(longitudes[INDEX]).iconSize(style.getIconSize());
+        if (null != style.getIconCode()) { builder.iconCode(style.getIconCode()); }
+        if (null != style.getColor()) { builder.color(style.getColor()); }
+        return builder;
+    }
+
+    public Location toLocation(final int INDEX) { return toLocationBuilder(INDEX).build(); }
+
+    /**
+     * @param LISTENER called after the points or their styles have been modified
+     */
+    public void addChangeListener(final Runnable LISTENER) { listeners.add(LISTENER); }
+    public void removeChangeListener(final Runnable LISTENER) { listeners.remove(LISTENER); }
+
+    private void project(final int INDEX) {
+        xs[INDEX] = (float) World.longitudeToX(longitudes[INDEX]);
+        ys[INDEX] = (float) World.latitudeToY(Math.max(-LocationIndex.MAX_LATITUDE, Math.min(LocationIndex.MAX_LATITUDE, latitudes[INDEX])));
+    }
+
+    private void changed() {
+        gridValid = false;
+        for (Runnable listener : listeners) { listener.run(); }
+    }
+
+    private void validateGrid() {
+        if (gridValid) { return; }
+        // counting sort of the points by cell
+        if (null == cellStarts) { cellStarts = new int[COLUMNS * ROWS + 1]; }
+        Arrays.fill(cellStarts, 0);
+        if (null == cellPoints || cellPoints.length < size) { cellPoints = new int[Math.max(size, latitudes.length)]; }
+        int[] cells = new int[size];
+        for (int i = 0 ; i < size ; i++) {
+            cells[i] = row(ys[i]) * COLUMNS + column(xs[i]);
+            cellStarts[cells[i] + 1]++;
+        }
+        for (int cell = 0 ; cell < COLUMNS * ROWS ; cell++) { cellStarts[cell + 1] += cellStarts[cell]; }
+        int[] offsets = Arrays.copyOf(cellStarts, COLUMNS * ROWS);
+        for (int i = 0 ; i < size ; i++) { cellPoints[offsets[cells[i]]++] = i; }
+        gridValid = true;
+    }
+
+    private static int column(final double X) { return Math.max(0, Math.min(COLUMNS - 1, (int) ((X - MIN_X) / CELL_SIZE))); }
+
+    private static int row(final double Y) { return Math.max(0, Math.min(ROWS - 1, (int) ((Y - MIN_Y) / CELL_SIZE))); }
+
+    private void ensureCapacity(final int CAPACITY) {
+        if (CAPACITY <= latitudes.length) { return; }
+        final int NEW_CAPACITY = Math.max(CAPACITY, latitudes.length + (latitudes.length >> 1));
+        latitudes  = Arrays.copyOf(latitudes, NEW_CAPACITY);
+        longitudes = Arrays.copyOf(longitudes, NEW_CAPACITY);
+        xs         = Arrays.copyOf(xs, NEW_CAPACITY);
+        ys         = Arrays.copyOf(ys, NEW_CAPACITY);
+        styles     = Arrays.copyOf(styles, NEW_CAPACITY);
+        if (null != ids) { ids = Arrays.copyOf(ids, NEW_CAPACITY); }
+    }
+
+    private void ensureIds() {
+        if (null == ids) { ids = new long[latitudes.length]; }
+    }
+
+    private void checkIndex(final int INDEX) {
+        if (INDEX < 0 || INDEX >= size) { throw new IndexOutOfBoundsException("Index: " + INDEX + ", Size: " + size); }
+    }
+
+    private void checkStyle(final int STYLE_INDEX) {
+        if (STYLE_INDEX < 0 || STYLE_INDEX >= styleTable.size()) { throw new IllegalArgumentException("Unknown style: " + STYLE_INDEX); }
+    }
+
+
+    // ******************** Inner Classes *************************************
+    /**
+     * The look of points that is shared by all points with the same style index.
+     */
+    public static final class Style {
+        private final Ikon  iconCode;
+        private final int   iconSize;
+        private final Color color;
+        private final int   hash;
+
+
+        // ******************** Constructors **********************************
+        private Style(final Ikon ICON_CODE, final int ICON_SIZE, final Color COLOR) {
+            iconCode = ICON_CODE;
+            iconSize = ICON_SIZE;
+            color    = COLOR;
+            hash     = Objects.hash(ICON_CODE, ICON_SIZE, COLOR);
+        }
+
+
+        // ******************** Methods ***************************************
+        /**
+         * @return the icon or null if the icon of the world is used
+         */
+        public Ikon getIconCode() { return iconCode; }
+
+        public int getIconSize() { return iconSize; }
+
+        /**
+         * @return the color or null if the location color of the world is used
+         */
+        public Color getColor() { return color; }
+
+        @Override public boolean equals(final Object OBJECT) {
+            if (this == OBJECT) { return true; }
+            if (!(OBJECT instanceof Style)) { return false; }
+            Style style = (Style) OBJECT;
+            return iconSize == style.iconSize && Objects.equals(iconCode, style.iconCode) && Objects.equals(color, style.color);
+        }
+
+        @Override public int hashCode() { return hash; }
+    }
+}
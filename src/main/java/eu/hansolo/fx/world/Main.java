@@ -34,6 +34,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.MissingResourceException;
 import java.util.Random;
+import java.util.function.Function;
 
 import static eu.hansolo.fx.world.Country.*;
 import static eu.hansolo.fx.world.Country.GB;
@@ -60,9 +61,14 @@ public class Main extends Application {
 
         CountryRegion myRegion = new CountryRegion("BENELUX", BE, NL, LU);
 
-        BusinessRegion.EU.setColor(Color.rgb(124, 208, 255));
+        // the population choropleth below colors all countries, region colors would be overridden by it
+        //BusinessRegion.EU.setColor(Color.rgb(124, 208, 255));
         //BusinessRegion.APAC.setColor(Color.LIGHTSALMON);
 
+        Function<Country, String> populationText = country -> null == country.getValue() || Double.isNaN(country.getValue().getNumericValue())
+                                                              ? country.getDisplayName()
+                                                              : country.getDisplayName() + " (" + country.getValue() + " million people)";
+
         world = WorldBuilder.create()
                             .resolution(Resolution.HI_RES)
                             //.backgroundColor(Color.web("#4aa9d7"))
@@ -104,11 +110,14 @@ public class Main extends Application {
                                 CountryPath countryPath = (CountryPath) evt.getSource();
                                 Locale      locale      = countryPath.getLocale();
                                 System.out.println(locale.getDisplayCountry() + " (" + locale.getISO3Country() + ")");
-                                System.out.println(Country.valueOf(countryPath.getName()).getValue() + " million people");
+                                System.out.println(countryPath.getCountry().getValue() + " million people");
                             })
+                            .sharedTooltip(true)
                             .zoomEnabled(true)
                             .selectionEnabled(true)
                             .build();
+        // set on the world, the raw builder above would make it an unchecked call
+        world.setTooltipTextProvider(populationText);
 
         // Population per country in 2016
         Map<String, Double> data = new HashMap<>();
@@ -122,6 +131,8 @@ public class Main extends Application {
                 country.setValue(new PopulationValueObject(null == value ? -1 : value));
             } catch (MissingResourceException e) {}
         }
+        // color the countries by population, countries without data keep the no data color
+        new Choropleth(world, ColorScale.quantile(Color.web("#fee5d9"), Color.web("#fcae91"), Color.web("#fb6a4a"), Color.web("#cb181d"))).refresh();
     }
 
     private static class PopulationValueObject implements ValueObject {
@@ -129,6 +140,8 @@ public class Main extends Application {
 
         private PopulationValueObject(final double VALUE) { value = VALUE; }
 
+        @Override public double getNumericValue() { return value < 0 ? Double.NaN : value; }
+
         @Override public String toString() { return String.valueOf((int) value); }
     }
 
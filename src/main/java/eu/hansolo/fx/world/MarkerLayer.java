@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2016 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.world;
+
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.paint.Color;
+import javafx.scene.transform.Scale;
+import org.kordamp.ikonli.Ikon;
+
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Draws all locations in the visible area into one canvas with the icons of an
+ * {@link IconCache} instead of creating a FontIcon node per location.
+ * The locations are taken from the {@link LocationIndex} of the world which is
+ * also used to find the location under the mouse, or from a {@link LocationStore}.
+ * The layer is mouse transparent, the world forwards the mouse events.
+ */
+class MarkerLayer extends Canvas {
+    private static final double        MAX_SIZE      = 4096;
+    // locations clamp their icon size, so no icon is larger than this
+    private static final double        MAX_ICON_SIZE = Location.MAX_ICON_SIZE;
+    private        final LocationIndex index;
+    private        final LocationStore store;
+    private        final IconCache     iconCache;
+    private        final ImageTable    images;
+    private        final Scale         scale;
+
+
+    // ******************** Constructors **************************************
+    MarkerLayer(final LocationIndex INDEX, final IconCache ICON_CACHE) {
+        this(INDEX, null, ICON_CACHE);
+    }
+    MarkerLayer(final LocationStore STORE, final IconCache ICON_CACHE) {
+        this(null, STORE, ICON_CACHE);
+    }
+    private MarkerLayer(final LocationIndex INDEX, final LocationStore STORE, final IconCache ICON_CACHE) {
+        index     = INDEX;
+        store     = STORE;
+        iconCache = ICON_CACHE;
+        images    = new ImageTable();
+        scale     = new Scale(1, 1, 0, 0);
+        getTransforms().add(scale);
+        setManaged(false);
+        setMouseTransparent(true);
+    }
+
+
+    // ******************** Methods *******************************************
+    /**
+     * @param AREA          the area in map space that should be covered by the canvas
+     * @param RENDER_SCALE  the number of pixels per unit in map space
+     * @param DEFAULT_ICON  the icon of locations without an icon code
+     * @param DEFAULT_COLOR the color of locations without a color
+     */
+    void draw(final Bounds AREA, final double RENDER_SCALE, final Ikon DEFAULT_ICON, final Color DEFAULT_COLOR) {
+        if (AREA.getWidth() <= 0 || AREA.getHeight() <= 0) { return; }
+        double renderScale = Math.min(RENDER_SCALE, Math.min(MAX_SIZE / AREA.getWidth(), MAX_SIZE / AREA.getHeight()));
+        setLayoutX(AREA.getMinX());
+        setLayoutY(AREA.getMinY());
+        setWidth(Math.ceil(AREA.getWidth() * renderScale));
+        setHeight(Math.ceil(AREA.getHeight() * renderScale));
+        scale.setX(1 / renderScale);
+        scale.setY(1 / renderScale);
+
+        GraphicsContext ctx = getGraphicsContext2D();
+        ctx.setTransform(1, 0, 0, 1, 0, 0);
+        ctx.clearRect(0, 0, getWidth(), getHeight());
+        ctx.setTransform(renderScale, 0, 0, renderScale, -AREA.getMinX() * renderScale, -AREA.getMinY() * renderScale);
+
+        // icons that are centered outside of the area might still reach into it
+        final double HALF         = MAX_ICON_SIZE * 0.5;
+        final double OUTPUT_SCALE = IconCache.getOutputScale(renderScale);
+        if (null != index) {
+            List<Location> locations = index.getLocations(new BoundingBox(AREA.getMinX() - HALF, AREA.getMinY() - HALF, AREA.getWidth() + MAX_ICON_SIZE, AREA.getHeight() + MAX_ICON_SIZE));
+            for (Location location : locations) {
+                double   x     = World.longitudeToX(location.getLongitude());
+                double   y     = World.latitudeToY(location.getLatitude());
+                Image    image = images.get(null == location.getIconCode() ? DEFAULT_ICON : location.getIconCode(), location.getIconSize(), null == location.getColor() ? DEFAULT_COLOR : location.getColor(), OUTPUT_SCALE);
+                double   scale = IconCache.getImageScale(location.getIconSize(), OUTPUT_SCALE);
+                double   w     = image.getWidth() / scale;
+                double   h     = image.getHeight() / scale;
+                ctx.drawImage(image, x - w * 0.5, y - h * 0.5, w, h);
+            }
+            images.clear();
+        }
+        if (null != store) {
+            // the images are looked up once per style instead of once per point
+            final Image[]  IMAGES = new Image[store.getStyleCount()];
+            final double[] SCALES = new double[store.getStyleCount()];
+            store.forEachInArea(AREA.getMinX() - HALF, AREA.getMinY() - HALF, AREA.getMaxX() + HALF, AREA.getMaxY() + HALF, i -> {
+                final int STYLE = store.getStyleIndex(i);
+                if (null == IMAGES[STYLE]) {
+                    LocationStore.Style style = store.getStyle(STYLE);
+                    IMAGES[STYLE] = iconCache.get(null == style.getIconCode() ? DEFAULT_ICON : style.getIconCode(), style.getIconSize(), null == style.getColor() ? DEFAULT_COLOR : style.getColor(), OUTPUT_SCALE);
+                    SCALES[STYLE] = IconCache.getImageScale(style.getIconSize(), OUTPUT_SCALE);
+                }
+                double w = IMAGES[STYLE].getWidth() / SCALES[STYLE];
+                double h = IMAGES[STYLE].getHeight() / SCALES[STYLE];
+                ctx.drawImage(IMAGES[STYLE], store.getX(i) - w * 0.5, store.getY(i) - h * 0.5, w, h);
+            });
+        }
+    }
+
+    /**
+     * @param X x coordinate in map space
+     * @param Y y coordinate in map space
+     * @return the topmost location whose icon contains the given point or null
+     */
+    Location pick(final double X, final double Y) {
+        if (null == index) { return null; }
+        final double   HALF      = MAX_ICON_SIZE * 0.5;
+        List<Location> locations = index.getLocations(new BoundingBox(X - HALF, Y - HALF, MAX_ICON_SIZE, MAX_ICON_SIZE));
+        // the locations are drawn in the order of the index, so the last hit is on top
+        for (int i = locations.size() - 1 ; i >= 0 ; i--) {
+            Location location = locations.get(i);
+            double   half     = location.getIconSize() * 0.5;
+            if (Math.abs(X - World.longitudeToX(location.getLongitude())) <= half && Math.abs(Y - World.latitudeToY(location.getLatitude())) <= half) { return location; }
+        }
+        return null;
+    }
+
+
+    // ******************** Inner Classes *************************************
+    /**
+     * The images resolved during one draw by icon, size and color. Most locations share
+     * a few looks, so the {@link IconCache} is asked once per look instead of once per location.
+     * Open addressing without any allocation for a look that has been resolved before.
+     */
+    private class ImageTable {
+        private Ikon[]  icons  = new Ikon[16];
+        private int[]   sizes  = new int[16];
+        private Color[] colors = new Color[16];
+        private Image[] table  = new Image[16];
+        private int     count;
+
+
+        // ******************** Methods ***************************************
+        Image get(final Ikon ICON_CODE, final int SIZE, final Color COLOR, final double OUTPUT_SCALE) {
+            int slot = find(ICON_CODE, SIZE, COLOR);
+            if (null != table[slot]) { return table[slot]; }
+            Image image = iconCache.get(ICON_CODE, SIZE, COLOR, OUTPUT_SCALE);
+            icons[slot]  = ICON_CODE;
+            sizes[slot]  = SIZE;
+            colors[slot] = COLOR;
+            table[slot]  = image;
+            if (++count * 2 > table.length) { grow(); }
+            return image;
+        }
+
+        void clear() {
+            if (0 == count) { return; }
+            Arrays.fill(icons, null);
+            Arrays.fill(colors, null);
+            Arrays.fill(table, null);
+            count = 0;
+        }
+
+        private int find(final Ikon ICON_CODE, final int SIZE, final Color COLOR) {
+            int hash = 31 * (31 * ICON_CODE.hashCode() + SIZE) + COLOR.hashCode();
+            int mask = table.length - 1;
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (null != table[slot] && !(sizes[slot] == SIZE && icons[slot].equals(ICON_CODE) && colors[slot].equals(COLOR))) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void grow() {
+            Ikon[]  oldIcons  = icons;
+            int[]   oldSizes  = sizes;
+            Color[] oldColors = colors;
+            Image[] oldTable  = table;
+            icons  = new Ikon[oldTable.length * 2];
+            sizes  = new int[oldTable.length * 2];
+            colors = new Color[oldTable.length * 2];
+            table  = new Image[oldTable.length * 2];
+            for (int i = 0 ; i < oldTable.length ; i++) {
+                if (null == oldTable[i]) continue;
+                int slot = find(oldIcons[i], oldSizes[i], oldColors[i]);
+                icons[slot]  = oldIcons[i];
+                sizes[slot]  = oldSizes[i];
+                colors[slot] = oldColors[i];
+                table[slot]  = oldTable[i];
+            }
+        }
+    }
+}
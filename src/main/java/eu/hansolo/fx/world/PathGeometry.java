@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2016 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.world;
+
+import java.util.Arrays;
+
+
+/**
+ * Immutable outline of one country path made of closed rings.
+ * Coordinates are stored as interleaved x/y pairs in map space and
+ * the class has no JavaFX dependencies so it can be created on any thread.
+ */
+public class PathGeometry {
+    private final float[] coordinates;
+    private final int[]   ringOffsets;
+    private final float   minX;
+    private final float   minY;
+    private final float   maxX;
+    private final float   maxY;
+
+
+    // ******************** Constructors **************************************
+    /**
+     * @param COORDINATES  interleaved x/y pairs of all rings
+     * @param RING_OFFSETS point index at which each ring starts followed by the total number of points
+     */
+    public PathGeometry(final float[] COORDINATES, final int[] RING_OFFSETS) {
+        coordinates = COORDINATES;
+        ringOffsets = RING_OFFSETS;
+
+        float x0 = Float.MAX_VALUE;
+        float y0 = Float.MAX_VALUE;
+        float x1 = -Float.MAX_VALUE;
+        float y1 = -Float.MAX_VALUE;
+        for (int i = 0 ; i < COORDINATES.length ; i += 2) {
+            x0 = Math.min(x0, COORDINATES[i]);
+            y0 = Math.min(y0, COORDINATES[i + 1]);
+            x1 = Math.max(x1, COORDINATES[i]);
+            y1 = Math.max(y1, COORDINATES[i + 1]);
+        }
+        if (COORDINATES.length == 0) { x0 = y0 = x1 = y1 = 0; }
+        minX = x0;
+        minY = y0;
+        maxX = x1;
+        maxY = y1;
+    }
+
+
+    // ******************** Methods *******************************************
+    public int getRingCount() { return ringOffsets.length - 1; }
+
+    public int getPointCount() { return coordinates.length / 2; }
+
+    /**
+     * @param RING index of the ring
+     * @return the index of the first point of the given ring
+     */
+    public int getRingStart(final int RING) { return ringOffsets[RING]; }
+
+    /**
+     * @param RING index of the ring
+     * @return the index after the last point of the given ring
+     */
+    public int getRingEnd(final int RING) { return ringOffsets[RING + 1]; }
+
+    public float getX(final int POINT) { return coordinates[POINT * 2]; }
+    public float getY(final int POINT) { return coordinates[POINT * 2 + 1]; }
+
+    public float getMinX() { return minX; }
+    public float getMinY() { return minY; }
+    public float getMaxX() { return maxX; }
+    public float getMaxY() { return maxY; }
+
+    /**
+     * Tests if the given point is inside of this path using the non zero
+     * winding rule which is also used to fill the path.
+     * @param X x coordinate in map space
+     * @param Y y coordinate in map space
+     * @return true if the given point is inside of this path
+     */
+    public boolean contains(final double X, final double Y) {
+        if (X < minX || X > maxX || Y < minY || Y > maxY) { return false; }
+        int winding = 0;
+        for (int ring = 0 ; ring < getRingCount() ; ring++) {
+            int start = getRingStart(ring);
+            int end   = getRingEnd(ring);
+            for (int i = start ; i < end ; i++) {
+                int    j  = i + 1 == end ? start : i + 1;
+                double x0 = getX(i);
+                double y0 = getY(i);
+                double x1 = getX(j);
+                double y1 = getY(j);
+                if (y0 <= Y) {
+                    if (y1 > Y && (x1 - x0) * (Y - y0) - (X - x0) * (y1 - y0) > 0) { winding++; }
+                } else {
+                    if (y1 <= Y && (x1 - x0) * (Y - y0) - (X - x0) * (y1 - y0) < 0) { winding--; }
+                }
+            }
+        }
+        return winding != 0;
+    }
+
+    /**
+     * Parses the subset of the SVG path syntax that is used in the resolution
+     * properties files (M, L, H, V and Z in absolute and relative form).
+     * @param CONTENT svg path data
+     * @return the parsed geometry
+     */
+    public static PathGeometry parse(final String CONTENT) {
+        final int LENGTH      = CONTENT.length();
+        float[]   coordinates = new float[64];
+        int[]     ringOffsets = new int[8];
+        int       points      = 0;
+        int       rings       = 0;
+        double    x           = 0;
+        double    y           = 0;
+        double    startX      = 0;
+        double    startY      = 0;
+        char      command     = 0;
+        int       index       = 0;
+        double[]  number      = new double[1];
+
+        while (index < LENGTH) {
+            char c = CONTENT.charAt(index);
+            if (Character.isWhitespace(c) || ',' == c) {
+                index++;
+                continue;
+            }
+            if (Character.isLetter(c)) {
+                command = c;
+                index++;
+                if ('Z' == command || 'z' == command) {
+                    x = startX;
+                    y = startY;
+                }
+                continue;
+            }
+            switch (command) {
+                case 'M':
+                case 'm':
+                    index = readNumber(CONTENT, index, number);
+                    double mx = number[0];
+                    index = readNumber(CONTENT, skipSeparators(CONTENT, index), number);
+                    double my = number[0];
+                    if ('m' == command) { mx += x; my += y; }
+                    x = startX = mx;
+                    y = startY = my;
+                    if (rings + 2 > ringOffsets.length) { ringOffsets = Arrays.copyOf(ringOffsets, ringOffsets.length * 2); }
+                    ringOffsets[rings++] = points;
+                    // subsequent pairs without a command are implicit line-tos
+                    command = 'm' == command ? 'l' : 'L';
+                    break;
+                case 'L':
+                case 'l':
+                    index = readNumber(CONTENT, index, number);
+                    double lx = number[0];
+                    index = readNumber(CONTENT, skipSeparators(CONTENT, index), number);
+                    double ly = number[0];
+                    x = 'l' == command ? x + lx : lx;
+                    y = 'l' == command ? y + ly : ly;
+                    break;
+                case 'H':
+                case 'h':
+                    index = readNumber(CONTENT, index, number);
+                    x = 'h' == command ? x + number[0] : number[0];
+                    break;
+                case 'V':
+                case 'v':
+                    index = readNumber(CONTENT, index, number);
+                    y = 'v' == command ? y + number[0] : number[0];
+                    break;
+                default: throw new IllegalArgumentException("Unsupported path command '" + command + "' at " + index);
+            }
+            if (points * 2 + 2 > coordinates.length) { coordinates = Arrays.copyOf(coordinates, coordinates.length * 2); }
+            coordinates[points * 2]     = (float) x;
+            coordinates[points * 2 + 1] = (float) y;
+            points++;
+        }
+        ringOffsets[rings] = points;
+        return new PathGeometry(Arrays.copyOf(coordinates, points * 2), Arrays.copyOf(ringOffsets, rings + 1));
+    }
+
+    private static int skipSeparators(final String CONTENT, final int INDEX) {
+        int index = INDEX;
+        while (index < CONTENT.length() && (',' == CONTENT.charAt(index) || Character.isWhitespace(CONTENT.charAt(index)))) { index++; }
+        return index;
+    }
+
+    private static int readNumber(final String CONTENT, final int INDEX, final double[] RESULT) {
+        int index = INDEX;
+        if (index < CONTENT.length() && ('-' == CONTENT.charAt(index) || '+' == CONTENT.charAt(index))) { index++; }
+        boolean dot = false;
+        while (index < CONTENT.length()) {
+            char c = CONTENT.charAt(index);
+            if ('.' == c && !dot) {
+                dot = true;
+            } else if ('e' == c || 'E' == c) {
+                index++;
+                if (index < CONTENT.length() && ('-' == CONTENT.charAt(index) || '+' == CONTENT.charAt(index))) { index++; }
+                continue;
+            } else if (c < '0' || c > '9') {
+                break;
+            }
+            index++;
+        }
+        if (index == INDEX) { throw new IllegalArgumentException("Number expected at " + INDEX); }
+        RESULT[0] = Double.parseDouble(CONTENT.substring(INDEX, index));
+        return index;
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2016 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.world;
+
+import javafx.scene.image.ImageView;
+import javafx.scene.image.WritableImage;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+
+/**
+ * Least recently used cache for the raster tiles of the map with a budget
+ * in bytes. Tiles that are pinned (e.g. because they are visible right now)
+ * are never evicted, so the cache can exceed its budget if the budget is
+ * smaller than the visible tiles.
+ * Must only be used on the JavaFX application thread.
+ */
+public class TileCache {
+    public  static final long                      DEFAULT_BUDGET = 64 * 1024 * 1024;
+    private        final LinkedHashMap<Long, Tile> tiles;
+    private              long                      budget;
+    private              long                      size;
+    private              long                      hits;
+    private              long                      misses;
+
+
+    // ******************** Constructors **************************************
+    public TileCache() {
+        this(DEFAULT_BUDGET);
+    }
+    public TileCache(final long BUDGET) {
+        tiles  = new LinkedHashMap<>(64, 0.75f, true);
+        budget = BUDGET;
+    }
+
+
+    // ******************** Methods *******************************************
+    /**
+     * @param KEY the key of the tile, see {@link #key(int, int, int)}
+     * @return the tile or null if it is not cached
+     */
+    public Tile get(final long KEY) {
+        Tile tile = tiles.get(KEY);
+        if (null == tile) { misses++; } else { hits++; }
+        return tile;
+    }
+
+    /**
+     * @param KEY the key of the tile
+     * @return the tile without counting a hit or miss, e.g. when looking for a fallback
+     */
+    Tile find(final long KEY) { return tiles.get(KEY); }
+
+    public void put(final Tile TILE) {
+        Tile former = tiles.put(TILE.key, TILE);
+        if (null != former) { size -= former.getBytes(); }
+        size += TILE.getBytes();
+        evict();
+    }
+
+    public void clear() {
+        tiles.clear();
+        size = 0;
+    }
+
+    public Collection<Tile> getTiles() { return tiles.values(); }
+
+    /**
+     * @return the number of bytes used by the cached tiles
+     */
+    public long getSize() { return size; }
+
+    public long getBudget() { return budget; }
+    public void setBudget(final long BUDGET) {
+        budget = BUDGET;
+        evict();
+    }
+
+    public long getHits() { return hits; }
+
+    public long getMisses() { return misses; }
+
+    public static long key(final int LEVEL, final int COLUMN, final int ROW) {
+        return ((long) LEVEL) << 48 | ((long) COLUMN & 0xFFFFFFL) << 24 | ((long) ROW & 0xFFFFFFL);
+    }
+
+    private void evict() {
+        for (Iterator<Tile> iterator = tiles.values().iterator() ; iterator.hasNext() && size > budget ; ) {
+            Tile tile = iterator.next();
+            if (tile.pinned) continue;
+            iterator.remove();
+            size -= tile.getBytes();
+        }
+    }
+
+
+    // ******************** Inner Classes *************************************
+    /**
+     * One raster tile of TILE_SIZE x TILE_SIZE pixels at a zoom level where
+     * a unit in map space covers 2^level pixels.
+     */
+    public static class Tile {
+        private final long          key;
+        private final int           level;
+        private final int           column;
+        private final int           row;
+        private final WritableImage image;
+        private final ImageView     view;
+        boolean                     stale;
+        boolean                     pinned;
+
+
+        // ******************** Constructors **********************************
+        Tile(final int LEVEL, final int COLUMN, final int ROW, final WritableImage IMAGE, final double SIZE) {
+            key    = key(LEVEL, COLUMN, ROW);
+            level  = LEVEL;
+            column = COLUMN;
+            row    = ROW;
+            image  = IMAGE;
+            view   = new ImageView(IMAGE);
+            view.setSmooth(true);
+            view.setMouseTransparent(true);
+            view.setFitWidth(SIZE);
+            view.setFitHeight(SIZE);
+            view.setLayoutX(COLUMN * SIZE);
+            view.setLayoutY(ROW * SIZE);
+        }
+
+
+        // ******************** Methods ***************************************
+        public long getKey() { return key; }
+
+        public int getLevel() { return level; }
+
+        public int getColumn() { return column; }
+
+        public int getRow() { return row; }
+
+        public WritableImage getImage() { return image; }
+
+        ImageView getView() { return view; }
+
+        /**
+         * @return true if the map has changed since the tile has been rendered
+         */
+        public boolean isStale() { return stale; }
+
+        public long getBytes() { return (long) image.getWidth() * (long) image.getHeight() * 4; }
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2016 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.world;
+
+import eu.hansolo.fx.world.TileCache.Tile;
+import javafx.application.Platform;
+import javafx.geometry.Bounds;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.Node;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
+
+import java.awt.BasicStroke;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+
+/**
+ * Shows the countries of a world as a pyramid of raster tiles. The tiles of the
+ * zoom level that matches the current scale are taken from a {@link TileCache},
+ * missing or outdated tiles are rendered on the executor in the background and
+ * the closest cached tile of a lower level is shown in the meantime.
+ * Like with the {@link CountryCanvas} the paths are only used as the model.
+ */
+class TileLayer extends Pane {
+    static final int    TILE_SIZE = 256;
+    static final int    MAX_LEVEL = 5;
+    private final Map<Country, List<CountryPath>> countryPaths;
+    private final Executor                        executor;
+    private final Runnable                        onChange;
+    private final double                          strokeWidth;
+    private final TileCache                       cache;
+    private final Set<Long>                       rendering;
+    private final Set<Long>                       outdated;
+    private       List<TileShape>                 shapes;
+    private       boolean                         disposed;
+
+
+    // ******************** Constructors **************************************
+    /**
+     * @param COUNTRY_PATHS the paths of the world by country, used as the model of the tiles
+     * @param EXECUTOR      the executor to render the tiles on
+     * @param ON_CHANGE     called on the JavaFX application thread when the tiles need to be updated
+     * @param WIDTH         the width of the map in map space
+     * @param HEIGHT        the height of the map in map space
+     * @param STROKE_WIDTH  the stroke width of the countries in map space
+     */
+    TileLayer(final Map<Country, List<CountryPath>> COUNTRY_PATHS, final Executor EXECUTOR, final Runnable ON_CHANGE, final double WIDTH, final double HEIGHT, final double STROKE_WIDTH) {
+        countryPaths = COUNTRY_PATHS;
+        executor     = EXECUTOR;
+        onChange     = ON_CHANGE;
+        strokeWidth  = STROKE_WIDTH;
+        cache        = new TileCache();
+        rendering    = new HashSet<>();
+        outdated     = new HashSet<>();
+        setManaged(false);
+        // the tiles are mouse transparent, the layer itself is picked on its bounds
+        setPickOnBounds(true);
+        resize(WIDTH, HEIGHT);
+    }
+
+
+    // ******************** Methods *******************************************
+    TileCache getCache() { return cache; }
+
+    /**
+     * Shows the tiles that cover the given area and renders the missing ones.
+     * @param AREA         the visible area in map space
+     * @param RENDER_SCALE the number of pixels per unit in map space
+     */
+    void update(final Bounds AREA, final double RENDER_SCALE) {
+        if (disposed) { return; }
+        final int    LEVEL     = getLevel(RENDER_SCALE);
+        final double TILE_SPAN = TILE_SIZE / (double) (1 << LEVEL);
+        int minColumn = (int) Math.floor(Math.max(0, AREA.getMinX()) / TILE_SPAN);
+        int minRow    = (int) Math.floor(Math.max(0, AREA.getMinY()) / TILE_SPAN);
+        int maxColumn = (int) Math.floor(Math.min(getWidth(), AREA.getMaxX()) / TILE_SPAN);
+        int maxRow    = (int) Math.floor(Math.min(getHeight(), AREA.getMaxY()) / TILE_SPAN);
+
+        for (Tile tile : cache.getTiles()) { tile.pinned = false; }
+        shapes = null;
+        List<Node> views = new ArrayList<>();
+        List<Node> fallbacks = new ArrayList<>();
+        for (int row = minRow ; row <= maxRow ; row++) {
+            for (int column = minColumn ; column <= maxColumn ; column++) {
+                Tile tile = cache.get(TileCache.key(LEVEL, column, row));
+                if (null == tile || tile.isStale()) { render(LEVEL, column, row); }
+                if (null != tile) {
+                    tile.pinned = true;
+                    views.add(tile.getView());
+                } else {
+                    ImageView fallback = createFallback(LEVEL, column, row);
+                    if (null != fallback) { fallbacks.add(fallback); }
+                }
+            }
+        }
+        // fallbacks are blurry and stay below the tiles of the current level
+        fallbacks.addAll(views);
+        getChildren().setAll(fallbacks);
+    }
+
+    /**
+     * Marks all tiles that show the given path as outdated, they are shown
+     * until they have been rendered again.
+     * @param PATH the path that has changed
+     */
+    void invalidate(final CountryPath PATH) {
+        PathGeometry geometry = PATH.getGeometry();
+        if (disposed || null == geometry) { return; }
+        double minX = geometry.getMinX() - strokeWidth;
+        double minY = geometry.getMinY() - strokeWidth;
+        double maxX = geometry.getMaxX() + strokeWidth;
+        double maxY = geometry.getMaxY() + strokeWidth;
+        boolean changed = false;
+        for (Tile tile : cache.getTiles()) {
+            if (!tile.isStale() && intersects(tile.getKey(), minX, minY, maxX, maxY)) {
+                tile.stale = true;
+                changed    = true;
+            }
+        }
+        // tiles that are rendered right now are based on the former state
+        for (long key : rendering) {
+            if (intersects(key, minX, minY, maxX, maxY)) { outdated.add(key); }
+        }
+        if (changed) { onChange.run(); }
+    }
+
+    void dispose() {
+        disposed = true;
+        cache.clear();
+        getChildren().clear();
+    }
+
+    static int getLevel(final double RENDER_SCALE) {
+        int level = (int) Math.ceil(Math.log(RENDER_SCALE) / Math.log(2) - 1e-6);
+        return Math.max(0, Math.min(MAX_LEVEL, level));
+    }
+
+    private void render(final int LEVEL, final int COLUMN, final int ROW) {
+        final long KEY = TileCache.key(LEVEL, COLUMN, ROW);
+        if (!rendering.add(KEY)) { return; }
+        // one snapshot of the model per update, shared by all tiles that are rendered
+        if (null == shapes) { shapes = createShapes(); }
+        final List<TileShape> SHAPES = shapes;
+        CompletableFuture.supplyAsync(() -> render(SHAPES, LEVEL, COLUMN, ROW, strokeWidth), executor)
+                         .whenComplete((pixels, throwable) -> Platform.runLater(() -> {
+                             rendering.remove(KEY);
+                             boolean stale = outdated.remove(KEY);
+                             if (disposed || null != throwable) { return; }
+                             WritableImage image = new WritableImage(TILE_SIZE, TILE_SIZE);
+                             image.getPixelWriter().setPixels(0, 0, TILE_SIZE, TILE_SIZE, PixelFormat.getIntArgbPreInstance(), pixels, 0, TILE_SIZE);
+                             Tile tile = new Tile(LEVEL, COLUMN, ROW, image, TILE_SIZE / (double) (1 << LEVEL));
+                             tile.stale = stale;
+                             cache.put(tile);
+                             onChange.run();
+                         }));
+    }
+
+    private ImageView createFallback(final int LEVEL, final int COLUMN, final int ROW) {
+        for (int level = LEVEL - 1 ; level >= 0 ; level--) {
+            int  shift = LEVEL - level;
+            Tile tile  = cache.find(TileCache.key(level, COLUMN >> shift, ROW >> shift));
+            if (null == tile) continue;
+            tile.pinned = true;
+            // the part of the lower level tile that covers the requested tile
+            double    size      = TILE_SIZE / (double) (1 << shift);
+            double    span      = TILE_SIZE / (double) (1 << LEVEL);
+            ImageView imageView = new ImageView(tile.getImage());
+            imageView.setViewport(new Rectangle2D((COLUMN - ((COLUMN >> shift) << shift)) * size, (ROW - ((ROW >> shift) << shift)) * size, size, size));
+            imageView.setSmooth(true);
+            imageView.setMouseTransparent(true);
+            imageView.setFitWidth(span);
+            imageView.setFitHeight(span);
+            imageView.setLayoutX(COLUMN * span);
+            imageView.setLayoutY(ROW * span);
+            return imageView;
+        }
+        return null;
+    }
+
+    private List<TileShape> createShapes() {
+        List<TileShape> shapes = new ArrayList<>();
+        for (Collection<CountryPath> pathList : countryPaths.values()) {
+            for (CountryPath path : pathList) {
+                if (!path.isVisible() || null == path.getGeometry()) continue;
+                shapes.add(new TileShape(path.getGeometry(), toArgb(path.getFill()), toArgb(path.getStroke())));
+            }
+        }
+        return shapes;
+    }
+
+    private static boolean intersects(final long KEY, final double MIN_X, final double MIN_Y, final double MAX_X, final double MAX_Y) {
+        int    level  = (int) (KEY >>> 48);
+        int    column = (int) ((KEY >>> 24) & 0xFFFFFF);
+        int    row    = (int) (KEY & 0xFFFFFF);
+        double span   = TILE_SIZE / (double) (1 << level);
+        return MAX_X >= column * span && MIN_X <= (column + 1) * span && MAX_Y >= row * span && MIN_Y <= (row + 1) * span;
+    }
+
+    private static int toArgb(final Paint PAINT) {
+        if (!(PAINT instanceof Color)) { return 0; }
+        Color color = (Color) PAINT;
+        return (int) Math.round(color.getOpacity() * 255) << 24 | (int) Math.round(color.getRed() * 255) << 16 | (int) Math.round(color.getGreen() * 255) << 8 | (int) Math.round(color.getBlue() * 255);
+    }
+
+    /**
+     * Renders one tile with Java2D which can be used on any thread.
+     * @return the pixels of the tile in premultiplied argb format
+     */
+    private static int[] render(final List<TileShape> SHAPES, final int LEVEL, final int COLUMN, final int ROW, final double STROKE_WIDTH) {
+        final double SCALE = 1 << LEVEL;
+        final double SPAN  = TILE_SIZE / SCALE;
+        final double MIN_X = COLUMN * SPAN - STROKE_WIDTH;
+        final double MIN_Y = ROW * SPAN - STROKE_WIDTH;
+        final double MAX_X = (COLUMN + 1) * SPAN + STROKE_WIDTH;
+        final double MAX_Y = (ROW + 1) * SPAN + STROKE_WIDTH;
+
+        BufferedImage image = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D    g2    = image.createGraphics();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+        g2.translate(-COLUMN * TILE_SIZE, -ROW * TILE_SIZE);
+        g2.scale(SCALE, SCALE);
+        g2.setStroke(new BasicStroke((float) STROKE_WIDTH));
+        for (TileShape shape : SHAPES) {
+            PathGeometry geometry = shape.geometry;
+            if (geometry.getMaxX() < MIN_X || geometry.getMinX() > MAX_X || geometry.getMaxY() < MIN_Y || geometry.getMinY() > MAX_Y) continue;
+            Path2D.Float path = new Path2D.Float(Path2D.WIND_NON_ZERO, geometry.getPointCount() + geometry.getRingCount());
+            for (int ring = 0 ; ring < geometry.getRingCount() ; ring++) {
+                int start = geometry.getRingStart(ring);
+                int end   = geometry.getRingEnd(ring);
+                if (start == end) continue;
+                path.moveTo(geometry.getX(start), geometry.getY(start));
+                for (int point = start + 1 ; point < end ; point++) { path.lineTo(geometry.getX(point), geometry.getY(point)); }
+                path.closePath();
+            }
+            g2.setColor(new java.awt.Color(shape.fill, true));
+            g2.fill(path);
+            g2.setColor(new java.awt.Color(shape.stroke, true));
+            g2.draw(path);
+        }
+        g2.dispose();
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+
+    // ******************** Inner Classes *************************************
+    private static class TileShape {
+        private final PathGeometry geometry;
+        private final int          fill;
+        private final int          stroke;
+
+
+        // ******************** Constructors **********************************
+        TileShape(final PathGeometry GEOMETRY, final int FILL, final int STROKE) {
+            geometry = GEOMETRY;
+            fill     = FILL;
+            stroke   = STROKE;
+        }
+    }
+}
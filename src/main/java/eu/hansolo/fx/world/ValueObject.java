@@ -20,4 +20,9 @@ package eu.hansolo.fx.world;
  * @author Andres Almiray
  */
 public interface ValueObject {
+
+    /**
+     * @return the value as a number, e.g. to color the country with a {@link Choropleth}, or NaN if it has none
+     */
+    default double getNumericValue() { return Double.NaN; }
 }
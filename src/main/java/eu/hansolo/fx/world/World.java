@@ -17,14 +17,18 @@ package eu.hansolo.fx.world;
 
 import javafx.application.Platform;
 import javafx.beans.DefaultProperty;
+import javafx.beans.InvalidationListener;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.BooleanPropertyBase;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.DoublePropertyBase;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.ObjectPropertyBase;
 import javafx.collections.FXCollections;
-import javafx.collections.MapChangeListener;
 import javafx.collections.ObservableList;
 import javafx.collections.ObservableMap;
 import javafx.css.CssMetaData;
@@ -35,14 +39,18 @@ import javafx.css.StyleablePropertyFactory;
 import javafx.event.EventHandler;
 import javafx.event.EventType;
 import javafx.event.WeakEventHandler;
+import javafx.geometry.BoundingBox;
 import javafx.geometry.Bounds;
 import javafx.geometry.Insets;
 import javafx.geometry.Orientation;
+import javafx.geometry.Point2D;
 import javafx.geometry.VPos;
 import javafx.scene.CacheHint;
 import javafx.scene.Group;
 import javafx.scene.Node;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.Tooltip;
+import javafx.scene.image.Image;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.input.ScrollEvent;
 import javafx.scene.layout.Background;
@@ -52,25 +60,36 @@ import javafx.scene.layout.Pane;
 import javafx.scene.layout.Region;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
-import javafx.scene.shape.SVGPath;
 import javafx.scene.shape.Shape;
 import javafx.scene.text.Font;
+import javafx.scene.transform.Transform;
 import org.kordamp.ikonli.Ikon;
 import org.kordamp.ikonli.javafx.FontIcon;
 import org.kordamp.ikonli.materialdesign.MaterialDesign;
 
-import java.io.IOException;
-import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static javafx.scene.input.MouseEvent.MOUSE_ENTERED;
 import static javafx.scene.input.MouseEvent.MOUSE_EXITED;
+import static javafx.scene.input.MouseEvent.MOUSE_MOVED;
 import static javafx.scene.input.MouseEvent.MOUSE_PRESSED;
 import static javafx.scene.input.MouseEvent.MOUSE_RELEASED;
 
@@ -81,11 +100,37 @@ import static javafx.scene.input.MouseEvent.MOUSE_RELEASED;
 public class World extends Region {
 
     public enum Resolution {
-        HI_RES, LO_RES
+        HI_RES("hires", 0), LO_RES("lores", 0),
+        // simplified from HI_RES at build time for the given zoom level
+        SIMPLIFIED_1("hires-1", 1), SIMPLIFIED_2("hires-2", 2), SIMPLIFIED_4("hires-4", 4), SIMPLIFIED_10("hires-10", 10);
+
+        private final String fileName;
+        private final int zoom;
+
+        Resolution(final String FILE_NAME, final int ZOOM) {
+            fileName = FILE_NAME;
+            zoom = ZOOM;
+        }
+
+        public String getFileName() { return fileName; }
+
+        /**
+         * @return the scale factor a simplified resolution is made for or 0 for HI_RES and LO_RES
+         */
+        public int getZoom() { return zoom; }
+
+        public boolean isSimplified() { return zoom > 0; }
     };
+
+    public enum RenderMode {
+        // every country path is a node in the scene graph
+        NODES,
+        // the countries are drawn into a canvas and picked by a hit test on their outlines
+        CANVAS,
+        // like CANVAS but the countries are rendered into cached raster tiles in the background
+        TILES
+    }
     private static final StyleablePropertyFactory<World> FACTORY = new StyleablePropertyFactory<>(Region.getClassCssMetaData());
-    private static final String HIRES_PROPERTIES = "eu/hansolo/fx/world/hires.properties";
-    private static final String LORES_PROPERTIES = "eu/hansolo/fx/world/lores.properties";
     private static final double PREFERRED_WIDTH = 1009;
     private static final double PREFERRED_HEIGHT = 665;
     private static final double MINIMUM_WIDTH = 100;
@@ -95,6 +140,18 @@ public class World extends Region {
     private static double MAP_OFFSET_X = -PREFERRED_WIDTH * 0.0285;
     private static double MAP_OFFSET_Y = PREFERRED_HEIGHT * 0.195;
     private static final double ASPECT_RATIO = PREFERRED_HEIGHT / PREFERRED_WIDTH;
+    private static final double X_SCALE = PREFERRED_WIDTH / 360;
+    private static final double Y_SCALE = PREFERRED_WIDTH / (2 * Math.PI);
+    // below this number of points the projection is not split up into parallel chunks
+    private static final int PARALLEL_PROJECTION_THRESHOLD = 1 << 16;
+    private static final double MAX_SIN_LATITUDE = Math.nextDown(1.0);
+    // an adaptive resolution tier is kept until the scale factor drops below this fraction of its zoom
+    private static final double DETAIL_HYSTERESIS = 0.8;
+    // largest scale factor that can be reached by scrolling or zooming to a country
+    private static final double MAX_SCALE_FACTOR = 20;
+    // scale factor from which HI_RES is used as the finest adaptive resolution tier
+    private static final int HI_RES_DETAIL_ZOOM = 20;
+    private static final double STROKE_WIDTH = 0.2;
     private static final CssMetaData<World, Color> BACKGROUND_COLOR = FACTORY.createColorCssMetaData("-background-color", s -> s.backgroundColor, Color.web("#3f3f4f"), false);
     private final StyleableProperty<Color> backgroundColor;
     private static final CssMetaData<World, Color> FILL_COLOR = FACTORY.createColorCssMetaData("-fill-color", s -> s.fillColor, Color.web("#d9d9dc"), false);
@@ -114,7 +171,53 @@ public class World extends Region {
     private ObjectProperty<Country> selectedCountry;
     private BooleanProperty zoomEnabled;
     private DoubleProperty scaleFactor;
-    private Properties resolutionProperties;
+    private BooleanProperty adaptiveResolution;
+    private WorldGeometry detailGeometry;
+    private Map<Resolution, WorldGeometry> detailTiers;
+    private Set<Country> detailedCountries;
+    private Resolution detailResolution;
+    private Resolution resolution;
+    private RenderMode renderMode;
+    private CountryCanvas countryCanvas;
+    private TileLayer tileLayer;
+    private Node countryLayer;
+    private Tooltip tooltip;
+    private boolean sharedTooltip;
+    private Function<Country, String> tooltipTextProvider;
+    private Executor executor;
+    private CountryPath hoveredPath;
+    private boolean redrawPending;
+    private InvalidationListener redrawListener;
+    private WorldGeometry geometry;
+    private CRegion region;
+    private boolean lazyLoading;
+    private Set<Country> countries;
+    private int countryNodeCount;
+    private ReadOnlyBooleanWrapper ready;
+    private ReadOnlyDoubleWrapper progress;
+    private CompletableFuture<World> readyFuture;
+    private AtomicBoolean progressUpdatePending;
+    private volatile double loadingProgress;
+    private List<Location> pendingLocations;
+    private LocationIndex locationIndex;
+    private ClusterLayer clusterLayer;
+    private MarkerLayer markerLayer;
+    private volatile LocationSink locationSink;
+    private CompletableFuture<World> locationBatches;
+    private IconCache iconCache;
+    private LocationStore locationStore;
+    private MarkerLayer storeLayer;
+    private Runnable storeListener;
+    private boolean locationImages;
+    private double locationOutputScale;
+    private Tooltip markerTooltip;
+    private Location hoveredLocation;
+    private EventHandler<MouseEvent> markerMouseHandler;
+    private boolean locationUpdatePending;
+    private CountryDataModel dataModel;
+    private boolean locationsVisible;
+    private boolean disposed;
+    protected Node placeholder;
     private Country formerSelectedCountry;
     private double zoomSceneX;
     private double zoomSceneY;
@@ -125,7 +228,8 @@ public class World extends Region {
     protected Ikon locationIconCode;
     protected Pane pane;
     protected Group group;
-    protected Map<String, List<CountryPath>> countryPaths;
+    protected Map<Country, List<CountryPath>> countryPaths;
+    // the location methods change the scene graph themselves, putting a shape into this map does not show it
     protected ObservableMap<Location, Shape> locations;
     // internal event handlers
     protected EventHandler<MouseEvent> _mouseEnterHandler;
@@ -145,7 +249,90 @@ public class World extends Region {
     }
 
     public World(final Resolution RESOLUTION) {
-        resolutionProperties = readProperties(Resolution.HI_RES == RESOLUTION ? World.HIRES_PROPERTIES : World.LORES_PROPERTIES);
+        this(RESOLUTION, null, false);
+    }
+
+    /**
+     * @param RESOLUTION   the resolution of the country outlines
+     * @param REGION       if not null only the countries of this region will be loaded and shown
+     * @param LAZY_LOADING if true the nodes of a country will be created the first time it becomes visible
+     */
+    public World(final Resolution RESOLUTION, final CRegion REGION, final boolean LAZY_LOADING) {
+        this(RESOLUTION, REGION, LAZY_LOADING, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param RESOLUTION   the resolution of the country outlines
+     * @param REGION       if not null only the countries of this region will be loaded and shown
+     * @param LAZY_LOADING if true the nodes of a country will be created the first time it becomes visible
+     * @param EXECUTOR     the executor used for background work like async loading, location icons, clustering and tiles,
+     *                     if null ForkJoinPool.commonPool() is used
+     */
+    public World(final Resolution RESOLUTION, final CRegion REGION, final boolean LAZY_LOADING, final Executor EXECUTOR) {
+        this(RESOLUTION, REGION, LAZY_LOADING, EXECUTOR, false);
+    }
+
+    /**
+     * @param RESOLUTION    the resolution of the country outlines
+     * @param REGION        if not null only the countries of this region will be loaded and shown
+     * @param LAZY_LOADING  if true the nodes of a country will be created the first time it becomes visible
+     * @param EXECUTOR      the executor used for background work like async loading, location icons, clustering and tiles,
+     *                      if null ForkJoinPool.commonPool() is used
+     * @param ASYNC_LOADING if true the outlines will be loaded in the background while a placeholder is shown,
+     *                      use {@link #readyFuture()} to get notified when the map is ready
+     */
+    public World(final Resolution RESOLUTION, final CRegion REGION, final boolean LAZY_LOADING, final Executor EXECUTOR, final boolean ASYNC_LOADING) {
+        this(RESOLUTION, REGION, LAZY_LOADING, EXECUTOR, ASYNC_LOADING, RenderMode.NODES);
+    }
+
+    /**
+     * @param RESOLUTION    the resolution of the country outlines
+     * @param REGION        if not null only the countries of this region will be loaded and shown
+     * @param LAZY_LOADING  if true the nodes of a country will be created the first time it becomes visible
+     * @param EXECUTOR      the executor used for background work like async loading, location icons, clustering and tiles,
+     *                      if null ForkJoinPool.commonPool() is used
+     * @param ASYNC_LOADING if true the outlines will be loaded in the background while a placeholder is shown,
+     *                      use {@link #readyFuture()} to get notified when the map is ready
+     * @param RENDER_MODE   CANVAS to draw the countries into a canvas or TILES to show them as cached raster tiles
+     *                      instead of adding their paths to the scene graph
+     */
+    public World(final Resolution RESOLUTION, final CRegion REGION, final boolean LAZY_LOADING, final Executor EXECUTOR, final boolean ASYNC_LOADING, final RenderMode RENDER_MODE) {
+        this(RESOLUTION, REGION, LAZY_LOADING, EXECUTOR, ASYNC_LOADING, RENDER_MODE, false);
+    }
+
+    /**
+     * @param RESOLUTION     the resolution of the country outlines
+     * @param REGION         if not null only the countries of this region will be loaded and shown
+     * @param LAZY_LOADING   if true the nodes of a country will be created the first time it becomes visible
+     * @param EXECUTOR       the executor used for background work like async loading, location icons, clustering and tiles,
+     *                       if null ForkJoinPool.commonPool() is used
+     * @param ASYNC_LOADING  if true the outlines will be loaded in the background while a placeholder is shown,
+     *                       use {@link #readyFuture()} to get notified when the map is ready
+     * @param RENDER_MODE    CANVAS to draw the countries into a canvas or TILES to show them as cached raster tiles
+     *                       instead of adding their paths to the scene graph
+     * @param SHARED_TOOLTIP if true one tooltip follows the hovered country instead of installing a tooltip on every path,
+     *                       the CANVAS and TILES render modes always use a shared tooltip
+     */
+    public World(final Resolution RESOLUTION, final CRegion REGION, final boolean LAZY_LOADING, final Executor EXECUTOR, final boolean ASYNC_LOADING, final RenderMode RENDER_MODE, final boolean SHARED_TOOLTIP) {
+        resolution = RESOLUTION;
+        renderMode = RENDER_MODE;
+        sharedTooltip = SHARED_TOOLTIP || RenderMode.NODES != RENDER_MODE;
+        executor = null == EXECUTOR ? ForkJoinPool.commonPool() : EXECUTOR;
+        region = REGION;
+        lazyLoading = LAZY_LOADING;
+        geometry = ASYNC_LOADING ? null : GeometryCache.acquire(RESOLUTION);
+        ready = new ReadOnlyBooleanWrapper(World.this, "ready", !ASYNC_LOADING);
+        progress = new ReadOnlyDoubleWrapper(World.this, "progress", ASYNC_LOADING ? 0.0 : 1.0);
+        readyFuture = new CompletableFuture<>();
+        progressUpdatePending = new AtomicBoolean(false);
+        pendingLocations = new ArrayList<>();
+        locationIndex = new LocationIndex();
+        iconCache = new IconCache();
+        locationBatches = CompletableFuture.completedFuture(this);
+        locationOutputScale = 1;
+        dataModel = CountryDataModel.fromCountries();
+        dataModel.addSnapshotListener(this::applySnapshot);
+        locationsVisible = true;
         backgroundColor = new StyleableObjectProperty<Color>(BACKGROUND_COLOR.getInitialValue(World.this)) {
             @Override
             protected void invalidated() {
@@ -272,7 +459,16 @@ public class World extends Region {
         locationColor = new StyleableObjectProperty<Color>(LOCATION_COLOR.getInitialValue(this)) {
             @Override
             protected void invalidated() {
-                locations.forEach((location, shape) -> shape.setFill(null == location.getColor() ? get() : location.getColor()));
+                locations.forEach((location, shape) -> {
+                    if (locationImages) {
+                        setLocationImage(location, (Rectangle) shape);
+                    } else {
+                        shape.setFill(null == location.getColor() ? get() : location.getColor());
+                    }
+                });
+                if (null != markerLayer || null != storeLayer) {
+                    requestLocationUpdate();
+                }
             }
 
             @Override
@@ -358,6 +554,27 @@ public class World extends Region {
                 return "zoomEnabled";
             }
         };
+        adaptiveResolution = new BooleanPropertyBase(false) {
+            @Override
+            protected void invalidated() {
+                updateLevelOfDetail();
+                if (!get()) {
+                    releaseDetailTiers();
+                }
+            }
+
+            @Override
+            public Object getBean() {
+                return World.this;
+            }
+
+            @Override
+            public String getName() {
+                return "adaptiveResolution";
+            }
+        };
+        detailedCountries = EnumSet.noneOf(Country.class);
+        detailTiers = new EnumMap<>(Resolution.class);
         scaleFactor = new DoublePropertyBase(1.0) {
             @Override
             protected void invalidated() {
@@ -377,7 +594,8 @@ public class World extends Region {
                 return "scaleFactor";
             }
         };
-        countryPaths = createCountryPaths();
+        countries = ASYNC_LOADING ? EnumSet.noneOf(Country.class) : createCountries();
+        countryPaths = new EnumMap<>(Country.class);
         locations = FXCollections.observableHashMap();
 
         locationIconCode = MaterialDesign.MDI_CHECKBOX_BLANK_CIRCLE;
@@ -401,7 +619,7 @@ public class World extends Region {
                 scale = scale * delta;
             }
             //scale           = evt.getDeltaY() < 0 ? scale / delta : scale * delta;
-            scale = clamp(1, 10, scale);
+            scale = clamp(1, MAX_SCALE_FACTOR, scale);
             double factor = (scale / oldScale) - 1;
             zoomSceneX = evt.getSceneX();
             zoomSceneY = evt.getSceneY();
@@ -419,6 +637,12 @@ public class World extends Region {
 
         initGraphics();
         registerListeners();
+
+        if (ASYNC_LOADING) {
+            loadAsync(null == EXECUTOR ? ForkJoinPool.commonPool() : EXECUTOR);
+        } else {
+            readyFuture.complete(World.this);
+        }
     }
 
     // ******************** Initialization ************************************
@@ -434,26 +658,41 @@ public class World extends Region {
 
         getStyleClass().add("world");
 
-        Color fill = getFillColor();
-        Color stroke = getStrokeColor();
+        if (sharedTooltip) {
+            tooltip = new Tooltip();
+        }
+        if (RenderMode.NODES != renderMode) {
+            redrawListener = o -> requestRedraw();
+            if (RenderMode.CANVAS == renderMode) {
+                countryCanvas = new CountryCanvas();
+                countryLayer = countryCanvas;
+            } else {
+                tileLayer = new TileLayer(countryPaths, executor, this::requestRedraw, PREFERRED_WIDTH, PREFERRED_HEIGHT, STROKE_WIDTH);
+                countryLayer = tileLayer;
+            }
+            countryLayer.setOnMouseMoved(this::handleLayerMouseEvent);
+            countryLayer.setOnMousePressed(this::handleLayerMouseEvent);
+            countryLayer.setOnMouseReleased(this::handleLayerMouseEvent);
+            countryLayer.setOnMouseExited(this::handleLayerMouseEvent);
+            pane.getChildren().add(0, countryLayer);
+            requestRedraw();
+        }
 
-        countryPaths.forEach((name, pathList) -> {
-            Country country = Country.valueOf(name);
-            pathList.forEach(path -> {
-                path.setFill(null == country.getColor() ? fill : country.getColor());
-                path.setStroke(stroke);
-                path.setStrokeWidth(0.2);
-                path.setOnMouseEntered(new WeakEventHandler<>(_mouseEnterHandler));
-                path.setOnMousePressed(new WeakEventHandler<>(_mousePressHandler));
-                path.setOnMouseReleased(new WeakEventHandler<>(_mouseReleaseHandler));
-                path.setOnMouseExited(new WeakEventHandler<>(_mouseExitHandler));
-            });
-            pane.getChildren().addAll(pathList);
-        });
+        if (!lazyLoading) {
+            countries.forEach(this::getPaths);
+        }
 
         group.getChildren().add(pane);
 
-        getChildren().setAll(group);
+        if (isReady()) {
+            getChildren().setAll(group);
+        } else {
+            ProgressIndicator progressIndicator = new ProgressIndicator();
+            progressIndicator.progressProperty().bind(progress);
+            progressIndicator.setMouseTransparent(true);
+            placeholder = progressIndicator;
+            getChildren().setAll(group, placeholder);
+        }
 
         setBackground(new Background(new BackgroundFill(getBackgroundColor(), CornerRadii.EMPTY, Insets.EMPTY)));
     }
@@ -461,8 +700,15 @@ public class World extends Region {
     private void registerListeners() {
         widthProperty().addListener(o -> resize());
         heightProperty().addListener(o -> resize());
+        InvalidationListener viewportListener = o -> updateViewport();
+        scaleFactor.addListener(viewportListener);
+        translateXProperty().addListener(viewportListener);
+        translateYProperty().addListener(viewportListener);
+        group.translateXProperty().addListener(viewportListener);
+        group.translateYProperty().addListener(viewportListener);
         sceneProperty().addListener(o -> {
-            if (!locations.isEmpty()) {
+            updateViewport();
+            if (!locations.isEmpty() && null == clusterLayer) {
                 addShapesToScene(locations.values());
             }
             if (isZoomEnabled()) {
@@ -488,14 +734,6 @@ public class World extends Region {
                     mouseEvent.consume();
                 }
             });
-
-            locations.addListener((MapChangeListener<Location, Shape>) CHANGE -> {
-                if (CHANGE.wasAdded()) {
-                    addShapesToScene(CHANGE.getValueAdded());
-                } else if (CHANGE.wasRemoved()) {
-                    Platform.runLater(() -> pane.getChildren().remove(CHANGE.getValueRemoved()));
-                }
-            });
         });
     }
 
@@ -535,8 +773,131 @@ public class World extends Region {
         return super.getChildren();
     }
 
+    /**
+     * Returns the paths of all countries of this world. In lazy loading mode this
+     * will create the nodes of all countries that have not been visible so far.
+     * With the CANVAS render mode the paths are not part of the scene graph but
+     * changing their fill, stroke or visibility will still be shown on the map.
+     * Prefer {@link #getCountries()} and {@link #getCountryPaths(Country)} as this creates a new map on every call.
+     * @return the paths of all countries of this world by their iso code
+     */
     public Map<String, List<CountryPath>> getCountryPaths() {
-        return countryPaths;
+        Map<String, List<CountryPath>> paths = new LinkedHashMap<>(countries.size() * 2);
+        countries.forEach(country -> paths.put(country.getName(), getPaths(country)));
+        return paths;
+    }
+
+    /**
+     * @param COUNTRY the country
+     * @return the paths of the given country or an empty list if the country is not part of this world
+     */
+    public List<CountryPath> getCountryPaths(final Country COUNTRY) {
+        return getPaths(COUNTRY);
+    }
+
+    /**
+     * @return the countries of this world, empty while the geometry is loaded asynchronously
+     */
+    public Set<Country> getCountries() {
+        return Collections.unmodifiableSet(countries);
+    }
+
+    /**
+     * @param COUNTRY the country
+     * @return true if the given country is part of this world
+     */
+    public boolean containsCountry(final Country COUNTRY) {
+        return countries.contains(COUNTRY);
+    }
+
+    public CRegion getRegion() {
+        return region;
+    }
+
+    public boolean isReady() {
+        return ready.get();
+    }
+
+    public ReadOnlyBooleanProperty readyProperty() {
+        return ready.getReadOnlyProperty();
+    }
+
+    public double getProgress() {
+        return progress.get();
+    }
+
+    /**
+     * @return the loading progress of the country outlines in the range 0 to 1
+     */
+    public ReadOnlyDoubleProperty progressProperty() {
+        return progress.getReadOnlyProperty();
+    }
+
+    /**
+     * @return a future that will be completed on the FX application thread when the country outlines are shown
+     */
+    public CompletableFuture<World> readyFuture() {
+        return readyFuture;
+    }
+
+    public boolean isLazyLoading() {
+        return lazyLoading;
+    }
+
+    public Resolution getResolution() {
+        return resolution;
+    }
+
+    public RenderMode getRenderMode() {
+        return renderMode;
+    }
+
+    /**
+     * @return the cache of the raster tiles or null if the render mode is not TILES
+     */
+    public TileCache getTileCache() {
+        return null == tileLayer ? null : tileLayer.getCache();
+    }
+
+    /**
+     * @return true if one tooltip follows the hovered country instead of a tooltip per path
+     */
+    public boolean isSharedTooltip() {
+        return sharedTooltip;
+    }
+
+    public Function<Country, String> getTooltipTextProvider() {
+        return tooltipTextProvider;
+    }
+
+    /**
+     * The text is resolved every time a country is hovered, e.g. to show the
+     * current value next to the name. Only used with a shared tooltip.
+     * @param PROVIDER returns the tooltip text of a country, if null the display name of the country is shown
+     */
+    public void setTooltipTextProvider(final Function<Country, String> PROVIDER) {
+        tooltipTextProvider = PROVIDER;
+    }
+
+    /**
+     * Releases the shared geometry of this world. The geometry of a resolution
+     * is evicted from the {@link GeometryCache} once all worlds using it are disposed.
+     * The world must not be used afterwards.
+     */
+    public void dispose() {
+        disposed = true;
+        if (null != locationStore) {
+            locationStore.removeChangeListener(storeListener);
+        }
+        if (null != tileLayer) {
+            tileLayer.dispose();
+        }
+        releaseDetailTiers();
+        if (null == geometry) {
+            return;
+        }
+        geometry = null;
+        GeometryCache.release(resolution);
     }
 
     public void setMouseEnterHandler(final EventHandler<MouseEvent> HANDLER) {
@@ -699,6 +1060,25 @@ public class World extends Region {
         return scaleFactor;
     }
 
+    public boolean isAdaptiveResolution() {
+        return adaptiveResolution.get();
+    }
+
+    /**
+     * If enabled the visible countries will be shown with the simplified resolution
+     * that matches the current scale factor when zoomed in (e.g. SIMPLIFIED_4 from a
+     * scale factor of 4 on) and with HI_RES at the largest scale factor of 20.
+     * Has no effect on HI_RES worlds.
+     * @param ENABLED true to enable the adaptive resolution
+     */
+    public void setAdaptiveResolution(final boolean ENABLED) {
+        adaptiveResolution.set(ENABLED);
+    }
+
+    public BooleanProperty adaptiveResolutionProperty() {
+        return adaptiveResolution;
+    }
+
     public void resetZoom() {
         setScaleFactor(1.0);
         setTranslateX(0);
@@ -716,16 +1096,65 @@ public class World extends Region {
     }
 
     public void addLocation(final Location LOCATION) {
-        double x = (LOCATION.getLongitude() + 180) * (PREFERRED_WIDTH / 360) + MAP_OFFSET_X;
-        double y = (PREFERRED_HEIGHT / 2) - (PREFERRED_WIDTH * (Math.log(Math.tan((Math.PI / 4) + (Math.toRadians(LOCATION.getLatitude()) / 2)))) / (2 * Math.PI)) + MAP_OFFSET_Y;
-
-        FontIcon locationIcon = new FontIcon(null == LOCATION.getIconCode() ? locationIconCode : LOCATION.getIconCode());
-        locationIcon.setIconSize(LOCATION.getIconSize());
-        locationIcon.setTextOrigin(VPos.CENTER);
-        locationIcon.setIconColor(null == LOCATION.getColor() ? getLocationColor() : LOCATION.getColor());
-        locationIcon.setX(x - LOCATION.getIconSize() * 0.5);
-        locationIcon.setY(y);
+        if (!isReady()) {
+            pendingLocations.add(LOCATION);
+            return;
+        }
+        if (null != markerLayer) {
+            // the marker layer draws the locations of the index, no node is needed
+            locationIndex.add(LOCATION);
+            requestLocationUpdate();
+            return;
+        }
+        Shape shape  = createLocationShape(LOCATION);
+        Shape former = locations.put(LOCATION, shape);
+        locationIndex.add(LOCATION);
+        if (null != former) {
+            runOnFxThread(() -> pane.getChildren().remove(former));
+        }
+        // with clustering the cluster layer decides which locations are shown
+        if (null == clusterLayer) {
+            addShapesToScene(shape);
+        } else if (null != clusterLayer.getClusters()) {
+            clusterLayer.getClusters().add(LOCATION);
+            requestLocationUpdate();
+        }
+    }
 
+    private Shape createLocationShape(final Location LOCATION) {
+        Shape locationIcon;
+        if (locationImages) {
+            // a rectangle filled with the cached image of the icon, see setLocationImages()
+            double[] xy = latLonToXY(LOCATION.getLatitude(), LOCATION.getLongitude());
+            Rectangle locationImage = new Rectangle(xy[0], xy[1], 0, 0);
+            setLocationImage(LOCATION, locationImage);
+            locationImage.setManaged(locationsVisible);
+            locationImage.setVisible(locationsVisible);
+            locationIcon = locationImage;
+        } else {
+            locationIcon = createLocationFontIcon(LOCATION, locationIconCode, getLocationColor(), locationsVisible);
+        }
+        installLocationHandlers(LOCATION, locationIcon, getLocationTooltipText(LOCATION));
+        return locationIcon;
+    }
+
+    /**
+     * Does not touch the scene graph and can be called from any thread.
+     */
+    private static FontIcon createLocationFontIcon(final Location LOCATION, final Ikon DEFAULT_ICON_CODE, final Color DEFAULT_COLOR, final boolean VISIBLE) {
+        double[] xy       = latLonToXY(LOCATION.getLatitude(), LOCATION.getLongitude());
+        FontIcon fontIcon = new FontIcon(null == LOCATION.getIconCode() ? DEFAULT_ICON_CODE : LOCATION.getIconCode());
+        fontIcon.setIconSize(LOCATION.getIconSize());
+        fontIcon.setTextOrigin(VPos.CENTER);
+        fontIcon.setIconColor(null == LOCATION.getColor() ? DEFAULT_COLOR : LOCATION.getColor());
+        fontIcon.setX(xy[0] - LOCATION.getIconSize() * 0.5);
+        fontIcon.setY(xy[1]);
+        fontIcon.setManaged(VISIBLE);
+        fontIcon.setVisible(VISIBLE);
+        return fontIcon;
+    }
+
+    private static String getLocationTooltipText(final Location LOCATION) {
         StringBuilder tooltipBuilder = new StringBuilder();
         if (!LOCATION.getName().isEmpty()) {
             tooltipBuilder.append(LOCATION.getName());
@@ -733,54 +1162,598 @@ public class World extends Region {
         if (!LOCATION.getInfo().isEmpty()) {
             tooltipBuilder.append("\n").append(LOCATION.getInfo());
         }
-        String tooltipText = tooltipBuilder.toString();
-        if (!tooltipText.isEmpty()) {
-            Tooltip tooltip = new Tooltip(tooltipText);
+        return tooltipBuilder.toString();
+    }
+
+    private void installLocationHandlers(final Location LOCATION, final Shape SHAPE, final String TOOLTIP_TEXT) {
+        if (!TOOLTIP_TEXT.isEmpty()) {
+            Tooltip tooltip = new Tooltip(TOOLTIP_TEXT);
             tooltip.setFont(Font.font(10));
-            Tooltip.install(locationIcon, tooltip);
+            Tooltip.install(SHAPE, tooltip);
         }
-
         if (null != LOCATION.getMouseEnterHandler()) {
-            locationIcon.setOnMouseEntered(new WeakEventHandler<>(LOCATION.getMouseEnterHandler()));
+            SHAPE.setOnMouseEntered(new WeakEventHandler<>(LOCATION.getMouseEnterHandler()));
         }
         if (null != LOCATION.getMousePressHandler()) {
-            locationIcon.setOnMousePressed(new WeakEventHandler<>(LOCATION.getMousePressHandler()));
+            SHAPE.setOnMousePressed(new WeakEventHandler<>(LOCATION.getMousePressHandler()));
         }
         if (null != LOCATION.getMouseReleaseHandler()) {
-            locationIcon.setOnMouseReleased(new WeakEventHandler<>(LOCATION.getMouseReleaseHandler()));
+            SHAPE.setOnMouseReleased(new WeakEventHandler<>(LOCATION.getMouseReleaseHandler()));
         }
         if (null != LOCATION.getMouseExitHandler()) {
-            locationIcon.setOnMouseExited(new WeakEventHandler<>(LOCATION.getMouseExitHandler()));
+            SHAPE.setOnMouseExited(new WeakEventHandler<>(LOCATION.getMouseExitHandler()));
         }
+    }
 
-        locations.put(LOCATION, locationIcon);
+    private void setLocationImage(final Location LOCATION, final Rectangle RECTANGLE) {
+        final Ikon  ICON_CODE = null == LOCATION.getIconCode() ? locationIconCode : LOCATION.getIconCode();
+        final Color COLOR     = null == LOCATION.getColor() ? getLocationColor() : LOCATION.getColor();
+        Image image = iconCache.get(ICON_CODE, LOCATION.getIconSize(), COLOR, locationOutputScale);
+        double x = RECTANGLE.getX() + RECTANGLE.getWidth() * 0.5;
+        double y = RECTANGLE.getY() + RECTANGLE.getHeight() * 0.5;
+        double scale = IconCache.getImageScale(LOCATION.getIconSize(), locationOutputScale);
+        double w = image.getWidth() / scale;
+        double h = image.getHeight() / scale;
+        RECTANGLE.setX(x - w * 0.5);
+        RECTANGLE.setY(y - h * 0.5);
+        RECTANGLE.setWidth(w);
+        RECTANGLE.setHeight(h);
+        RECTANGLE.setFill(iconCache.getPattern(ICON_CODE, LOCATION.getIconSize(), COLOR, locationOutputScale));
     }
 
     public void removeLocation(final Location LOCATION) {
-        locations.remove(LOCATION);
+        pendingLocations.remove(LOCATION);
+        Shape shape = locations.remove(LOCATION);
+        if (null != shape) {
+            runOnFxThread(() -> pane.getChildren().remove(shape));
+        }
+        locationIndex.remove(LOCATION);
+        if (null != clusterLayer && null != clusterLayer.getClusters()) {
+            clusterLayer.getClusters().remove(LOCATION);
+            requestLocationUpdate();
+        }
+        if (null != markerLayer) {
+            requestLocationUpdate();
+        }
     }
 
     public void addLocations(final Location... LOCATIONS) {
+        addLocations(Arrays.asList(LOCATIONS));
+    }
+
+    /**
+     * Adds all locations right away with one change of the scene graph instead of one per location.
+     * Batches of the asynchronous bulk operations that are still pending are applied afterwards.
+     * @param LOCATIONS the locations to add
+     */
+    public void addLocations(final Collection<Location> LOCATIONS) {
+        addLocationBatch(LOCATIONS);
+    }
+
+    public CompletableFuture<World> addLocationsAsync(final Location... LOCATIONS) {
+        return addLocationsAsync(Arrays.asList(LOCATIONS));
+    }
+
+    /**
+     * Adds all locations in one batch. The icons and tooltip texts are created in parallel
+     * on the executor of this world and the scene graph is changed once on the FX application
+     * thread. The asynchronous bulk operations are applied in the order they have been called.
+     * @param LOCATIONS the locations to add
+     * @return a future that completes on the FX application thread when the locations have been added
+     */
+    public CompletableFuture<World> addLocationsAsync(final Collection<Location> LOCATIONS) {
+        final List<Location> LIST = new ArrayList<>(LOCATIONS);
+        return enqueueLocationBatch(prepareLocationShapes(LIST), PREPARED -> addLocationBatch(LIST, PREPARED));
+    }
+
+    public void removeLocations(final Location... LOCATIONS) {
+        removeLocations(Arrays.asList(LOCATIONS));
+    }
+
+    /**
+     * Removes all locations right away with one change of the scene graph.
+     * @param LOCATIONS the locations to remove
+     */
+    public void removeLocations(final Collection<Location> LOCATIONS) {
+        removeLocationBatch(new ArrayList<>(LOCATIONS));
+    }
+
+    public CompletableFuture<World> removeLocationsAsync(final Location... LOCATIONS) {
+        return removeLocationsAsync(Arrays.asList(LOCATIONS));
+    }
+
+    /**
+     * Removes all locations in one batch with one change of the scene graph on the FX application thread.
+     * @param LOCATIONS the locations to remove
+     * @return a future that completes on the FX application thread when the locations have been removed
+     */
+    public CompletableFuture<World> removeLocationsAsync(final Collection<Location> LOCATIONS) {
+        final List<Location> LIST = new ArrayList<>(LOCATIONS);
+        return enqueueLocationBatch(CompletableFuture.completedFuture(null), PREPARED -> removeLocationBatch(LIST));
+    }
+
+    /**
+     * Replaces all locations of this world by the given ones right away.
+     * @param LOCATIONS the new locations
+     */
+    public void setLocations(final Collection<Location> LOCATIONS) {
+        final List<Location> LIST = new ArrayList<>(LOCATIONS);
+        clearLocations();
+        addLocationBatch(LIST, null);
+    }
+
+    /**
+     * Replaces all locations of this world by the given ones in one batch, the new icons
+     * are created in parallel on the executor of this world.
+     * @param LOCATIONS the new locations
+     * @return a future that completes on the FX application thread when the locations have been replaced
+     */
+    public CompletableFuture<World> setLocationsAsync(final Collection<Location> LOCATIONS) {
+        final List<Location> LIST = new ArrayList<>(LOCATIONS);
+        return enqueueLocationBatch(prepareLocationShapes(LIST), PREPARED -> {
+            clearLocations();
+            addLocationBatch(LIST, PREPARED);
+        });
+    }
+
+    private <T> CompletableFuture<World> enqueueLocationBatch(final CompletableFuture<T> PREPARED, final Consumer<T> APPLY) {
+        synchronized (this) {
+            CompletableFuture<World> batch = locationBatches.thenCombineAsync(PREPARED, (world, prepared) -> {
+                if (!disposed) {
+                    APPLY.accept(prepared);
+                }
+                return World.this;
+            }, Platform::runLater);
+            // a failed batch must not stop the following ones
+            locationBatches = batch.exceptionally(throwable -> World.this);
+            return batch;
+        }
+    }
+
+    /**
+     * Creates the icons of the given locations in parallel on the executor.
+     * @return the icons in the order of the locations or null if the locations are not shown as font icons
+     */
+    private CompletableFuture<PreparedShapes> prepareLocationShapes(final List<Location> LOCATIONS) {
+        if (locationImages || null != markerLayer || LOCATIONS.isEmpty()) {
+            // the images of the icon cache can only be rendered on the FX application thread
+            return CompletableFuture.completedFuture(null);
+        }
+        final Ikon    ICON_CODE = locationIconCode;
+        final Color   COLOR     = getLocationColor();
+        final boolean VISIBLE   = locationsVisible;
+        final PreparedShapes PREPARED = new PreparedShapes(LOCATIONS.size());
+        final int            CHUNK    = Math.max(1024, LOCATIONS.size() / Runtime.getRuntime().availableProcessors() + 1);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int from = 0 ; from < LOCATIONS.size() ; from += CHUNK) {
+            final int FROM = from;
+            final int TO   = Math.min(LOCATIONS.size(), from + CHUNK);
+            futures.add(CompletableFuture.runAsync(() -> {
+                for (int i = FROM ; i < TO ; i++) {
+                    PREPARED.shapes[i]       = createLocationFontIcon(LOCATIONS.get(i), ICON_CODE, COLOR, VISIBLE);
+                    PREPARED.tooltipTexts[i] = getLocationTooltipText(LOCATIONS.get(i));
+                }
+            }, executor));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(v -> PREPARED);
+    }
+
+    /**
+     * The sink accepts location changes from any thread and applies them in one batch
+     * per pulse, changes of the same location are coalesced. Use it for feeds with many
+     * updates per second instead of calling addLocation() and removeLocation() for each.
+     * The sink has a capacity of {@link LocationSink#DEFAULT_CAPACITY} locations and blocks
+     * the producer if it is full, see {@link #createLocationSink(int, LocationSink.OverflowPolicy)}.
+     * @return the location sink of this world
+     */
+    public LocationSink locationSink() {
+        LocationSink sink = locationSink;
+        if (null == sink) {
+            synchronized (this) {
+                sink = locationSink;
+                if (null == sink) {
+                    sink = createLocationSink(LocationSink.DEFAULT_CAPACITY, LocationSink.OverflowPolicy.BLOCK);
+                    locationSink = sink;
+                }
+            }
+        }
+        return sink;
+    }
+
+    /**
+     * Creates an additional sink with its own capacity and overflow policy, e.g. a sink that
+     * drops the oldest position updates of a feed if the FX application thread can't keep up.
+     * @param CAPACITY the maximum number of locations with pending changes
+     * @param POLICY   what to do if the capacity is reached
+     * @return a new location sink that applies its changes to this world
+     */
+    public LocationSink createLocationSink(final int CAPACITY, final LocationSink.OverflowPolicy POLICY) {
+        return new LocationSink(CAPACITY, POLICY, this::applyLocationBatch);
+    }
+
+    private void applyLocationBatch(final LocationSink.Batch BATCH) {
+        if (disposed) {
+            return;
+        }
+        BATCH.applyCoordinates();
+        removeLocationBatch(BATCH.getRemoved());
+        LocationClusters clusters = null == clusterLayer ? null : clusterLayer.getClusters();
+        for (Location location : BATCH.getMoved()) {
+            if (!locationIndex.contains(location)) {
+                continue;
+            }
+            locationIndex.update(location);
+            Shape shape = locations.get(location);
+            if (null != shape) {
+                moveLocationShape(location, shape);
+            }
+            if (null != clusters) {
+                clusters.update(location);
+            }
+        }
+        addLocationBatch(BATCH.getAdded());
+        if (!BATCH.getMoved().isEmpty() && (null != clusterLayer || null != markerLayer)) {
+            requestLocationUpdate();
+        }
+    }
+
+    /**
+     * Adds the given locations with one change of the scene graph instead of one per location.
+     * @param LOCATIONS the locations to add
+     */
+    private void addLocationBatch(final Collection<Location> LOCATIONS) {
+        addLocationBatch(new ArrayList<>(LOCATIONS), null);
+    }
+    /**
+     * @param LOCATIONS the locations to add
+     * @param PREPARED  the font icons of the locations that have been created by prepareLocationShapes() or null
+     */
+    private void addLocationBatch(final List<Location> LOCATIONS, final PreparedShapes PREPARED) {
+        if (LOCATIONS.isEmpty()) {
+            return;
+        }
+        if (!isReady()) {
+            pendingLocations.addAll(LOCATIONS);
+            return;
+        }
+        locationIndex.addAll(LOCATIONS);
+        if (null != markerLayer) {
+            requestLocationUpdate();
+            return;
+        }
+        // the prepared icons are outdated if the kind of location shapes changed in the meantime
+        final boolean USE_PREPARED = null != PREPARED && !locationImages;
+        Map<Location, Shape> shapes = new LinkedHashMap<>(LOCATIONS.size() * 2);
+        for (int i = 0 ; i < LOCATIONS.size() ; i++) {
+            Location location = LOCATIONS.get(i);
+            if (USE_PREPARED) {
+                installLocationHandlers(location, PREPARED.shapes[i], PREPARED.tooltipTexts[i]);
+                shapes.put(location, PREPARED.shapes[i]);
+            } else {
+                shapes.put(location, createLocationShape(location));
+            }
+        }
+        // locations that are added again replace their former shape
+        Set<Shape> replaced = new HashSet<>();
+        for (Location location : shapes.keySet()) {
+            Shape former = locations.get(location);
+            if (null != former) {
+                replaced.add(former);
+            }
+        }
+        locations.putAll(shapes);
+        if (null == clusterLayer) {
+            if (!replaced.isEmpty()) {
+                runOnFxThread(() -> pane.getChildren().removeAll(replaced));
+            }
+            addShapesToScene(shapes.values());
+        } else if (null != clusterLayer.getClusters()) {
+            shapes.keySet().forEach(clusterLayer.getClusters()::add);
+            requestLocationUpdate();
+        }
+    }
+
+    /**
+     * Removes the given locations with one change of the scene graph instead of one per location.
+     * @param LOCATIONS the locations to remove
+     */
+    private void removeLocationBatch(final Collection<Location> LOCATIONS) {
+        if (LOCATIONS.isEmpty()) {
+            return;
+        }
+        if (!pendingLocations.isEmpty()) {
+            pendingLocations.removeAll(new HashSet<>(LOCATIONS));
+        }
+        LocationClusters clusters = null == clusterLayer ? null : clusterLayer.getClusters();
+        Set<Shape> shapes = new HashSet<>();
         for (Location location : LOCATIONS) {
-            addLocation(location);
+            Shape shape = locations.remove(location);
+            if (null != shape) {
+                shapes.add(shape);
+            }
+            locationIndex.remove(location);
+            if (null != clusters) {
+                clusters.remove(location);
+            }
+        }
+        if (!shapes.isEmpty()) {
+            runOnFxThread(() -> pane.getChildren().removeAll(shapes));
+        }
+        if (null != clusterLayer || null != markerLayer) {
+            requestLocationUpdate();
+        }
+    }
+
+    private void moveLocationShape(final Location LOCATION, final Shape SHAPE) {
+        double[] xy = latLonToXY(LOCATION.getLatitude(), LOCATION.getLongitude());
+        if (SHAPE instanceof Rectangle) {
+            Rectangle rectangle = (Rectangle) SHAPE;
+            rectangle.setX(xy[0] - rectangle.getWidth() * 0.5);
+            rectangle.setY(xy[1] - rectangle.getHeight() * 0.5);
+        } else if (SHAPE instanceof FontIcon) {
+            FontIcon fontIcon = (FontIcon) SHAPE;
+            fontIcon.setX(xy[0] - LOCATION.getIconSize() * 0.5);
+            fontIcon.setY(xy[1]);
         }
     }
 
     public void clearLocations() {
+        pendingLocations.clear();
+        Set<Shape> shapes = new HashSet<>(locations.values());
         locations.clear();
+        if (!shapes.isEmpty()) {
+            runOnFxThread(() -> pane.getChildren().removeAll(shapes));
+        }
+        locationIndex.clear();
+        if (null != clusterLayer && null != clusterLayer.getClusters()) {
+            clusterLayer.getClusters().clear();
+            requestLocationUpdate();
+        }
+        if (null != markerLayer) {
+            requestLocationUpdate();
+        }
+    }
+
+    /**
+     * The spatial index of the locations that have been added to this world, use it
+     * to find the locations in the visible area, within a radius or next to a point.
+     * Locations that are moved after they have been added have to be updated in the index.
+     * @return the spatial index of the locations of this world
+     */
+    public LocationIndex getLocationIndex() {
+        return locationIndex;
     }
 
     public void showLocations(final boolean SHOW) {
+        locationsVisible = SHOW;
         for (Shape shape : locations.values()) {
             shape.setManaged(SHOW);
             shape.setVisible(SHOW);
         }
+        if (null != clusterLayer) {
+            clusterLayer.setVisible(SHOW);
+        }
+        if (null != markerLayer) {
+            markerLayer.setVisible(SHOW);
+        }
+        if (null != storeLayer) {
+            storeLayer.setVisible(SHOW);
+        }
+    }
+
+    public boolean isLocationClustering() {
+        return null != clusterLayer;
+    }
+
+    /**
+     * Merges locations that are close to each other at the current zoom level into
+     * count bubbles, e.g. to show tens of thousands of locations. The clusters are
+     * created on the executor of this world and split up while zooming in.
+     * @param CLUSTERING true to show the locations as clusters
+     */
+    public void setLocationClustering(final boolean CLUSTERING) {
+        if (CLUSTERING == isLocationClustering()) {
+            return;
+        }
+        if (CLUSTERING) {
+            setLocationCanvas(false);
+        }
+        if (!CLUSTERING) {
+            pane.getChildren().remove(clusterLayer);
+            clusterLayer.clear();
+            clusterLayer = null;
+            addShapesToScene(locations.values());
+            return;
+        }
+        final ClusterLayer LAYER = new ClusterLayer(locations::get);
+        LAYER.setVisible(locationsVisible);
+        clusterLayer = LAYER;
+        pane.getChildren().removeAll(new HashSet<>(locations.values()));
+        pane.getChildren().add(LAYER);
+        final List<Location> SNAPSHOT = new ArrayList<>(locations.keySet());
+        CompletableFuture.supplyAsync(() -> LocationClusters.create(SNAPSHOT), executor)
+                         .thenAccept(clusters -> Platform.runLater(() -> {
+                             if (LAYER != clusterLayer) {
+                                 return;
+                             }
+                             // apply the changes that happened while the clusters were created
+                             for (Location location : SNAPSHOT) {
+                                 if (!locations.containsKey(location)) {
+                                     clusters.remove(location);
+                                 }
+                             }
+                             for (Location location : locations.keySet()) {
+                                 if (!clusters.contains(location)) {
+                                     clusters.add(location);
+                                 }
+                             }
+                             LAYER.setClusters(clusters);
+                             updateLocationLayers();
+                         }));
+    }
+
+    public boolean isLocationImages() {
+        return locationImages;
+    }
+
+    /**
+     * Shows the locations as rectangles that are filled with a cached image of their
+     * icon instead of a FontIcon per location. All locations with the same icon, size
+     * and color share one image, so the costs depend on the number of distinct icons.
+     * The source of the mouse events of the locations will be a {@link Rectangle}.
+     * @param IMAGES true to use cached icon images
+     */
+    public void setLocationImages(final boolean IMAGES) {
+        if (IMAGES == locationImages) {
+            return;
+        }
+        locationImages = IMAGES;
+        locationOutputScale = IconCache.getOutputScale(getRenderScale());
+        if (locations.isEmpty()) {
+            return;
+        }
+        // the cluster layer keeps the former nodes, so it is rebuilt with the new ones
+        final boolean CLUSTERING = isLocationClustering();
+        setLocationClustering(false);
+        pane.getChildren().removeAll(new HashSet<>(locations.values()));
+        Map<Location, Shape> shapes = new LinkedHashMap<>(locations.size() * 2);
+        for (Location location : locations.keySet()) {
+            shapes.put(location, createLocationShape(location));
+        }
+        locations.putAll(shapes);
+        addShapesToScene(shapes.values());
+        setLocationClustering(CLUSTERING);
+    }
+
+    /**
+     * @return the cache of the icon images of the locations, e.g. to check its statistics
+     */
+    public IconCache getIconCache() {
+        return iconCache;
+    }
+
+    public LocationStore getLocationStore() {
+        return locationStore;
+    }
+
+    /**
+     * Shows the points of the given store on a canvas, e.g. a million points that
+     * would need too much memory as {@link Location}s. The points are redrawn
+     * whenever the store is modified.
+     * @param STORE the store to show or null to remove the current one
+     */
+    public void setLocationStore(final LocationStore STORE) {
+        if (STORE == locationStore) {
+            return;
+        }
+        if (null != locationStore) {
+            locationStore.removeChangeListener(storeListener);
+            pane.getChildren().remove(storeLayer);
+            storeLayer = null;
+        }
+        locationStore = STORE;
+        if (null == STORE) {
+            return;
+        }
+        if (null == storeListener) {
+            storeListener = this::requestLocationUpdate;
+        }
+        storeLayer = new MarkerLayer(STORE, iconCache);
+        storeLayer.setVisible(locationsVisible);
+        pane.getChildren().add(storeLayer);
+        STORE.addChangeListener(storeListener);
+        requestLocationUpdate();
+    }
+
+    public boolean isLocationCanvas() {
+        return null != markerLayer;
+    }
+
+    /**
+     * Draws all locations into one canvas instead of creating a node per location,
+     * e.g. to show a hundred thousand locations. The mouse handlers of the locations
+     * keep working but the source of their events is the {@link Location} itself.
+     * Can not be combined with {@link #setLocationClustering(boolean) clustering}.
+     * @param CANVAS true to draw the locations into a canvas
+     */
+    public void setLocationCanvas(final boolean CANVAS) {
+        if (CANVAS == isLocationCanvas()) {
+            return;
+        }
+        if (!CANVAS) {
+            pane.removeEventFilter(MouseEvent.ANY, markerMouseHandler);
+            pane.getChildren().remove(markerLayer);
+            markerLayer = null;
+            setHoveredLocation(null, null);
+            Map<Location, Shape> shapes = new LinkedHashMap<>();
+            for (Location location : locationIndex.getLocations()) {
+                shapes.put(location, createLocationShape(location));
+            }
+            locations.putAll(shapes);
+            addShapesToScene(shapes.values());
+            return;
+        }
+        setLocationClustering(false);
+        pane.getChildren().removeAll(new HashSet<>(locations.values()));
+        locations.clear();
+        markerLayer = new MarkerLayer(locationIndex, iconCache);
+        markerLayer.setVisible(locationsVisible);
+        if (null == markerTooltip) {
+            markerTooltip = new Tooltip();
+            markerTooltip.setFont(Font.font(10));
+            markerMouseHandler = this::handleMarkerMouseEvent;
+        }
+        pane.getChildren().add(markerLayer);
+        pane.addEventFilter(MouseEvent.ANY, markerMouseHandler);
+        requestLocationUpdate();
+    }
+
+    /**
+     * Sets the colors of the given countries and updates only the paths whose fill
+     * actually changes. Can be called from any thread, all colors that are applied
+     * before the next pulse will be shown in one pass on the FX application thread.
+     * The colors are only stored in the {@link #getDataModel() data model} of this world.
+     * @param COLORS the new colors by country, a null color resets a country to the fill color
+     */
+    public void applyColors(final Map<Country, Color> COLORS) {
+        dataModel.setColors(COLORS);
+        if (Platform.isFxApplicationThread()) {
+            dataModel.flush();
+        }
+    }
+
+    /**
+     * The colors and values of the countries of this world. It is initialized with the
+     * colors and values of the {@link Country} enum when the world is created and can be
+     * written lock free from any thread, the changes are shown once per pulse.
+     * @return the data model of this world
+     */
+    public CountryDataModel getDataModel() {
+        return dataModel;
+    }
+
+    /**
+     * Starts a batch of color changes that will be applied with {@link #applyColors(Map)} when committed.
+     * <pre>
+     * world.beginColorUpdate()
+     *      .set(Country.DE, Color.RED)
+     *      .set(BusinessRegion.APAC, Color.BLUE)
+     *      .commit();
+     * </pre>
+     * @return a new color update for this world
+     */
+    public ColorUpdate beginColorUpdate() {
+        return new ColorUpdate(World.this);
     }
 
     public void zoomToCountry(final Country COUNTRY) {
         if (!isZoomEnabled()) {
             return;
         }
+        if (!isReady()) {
+            readyFuture.thenRun(() -> zoomToCountry(COUNTRY));
+            return;
+        }
         if (null != getSelectedCountry()) {
             setCountryFillAndStroke(getSelectedCountry(), getFillColor(), getStrokeColor());
         }
@@ -791,6 +1764,10 @@ public class World extends Region {
         if (!isZoomEnabled()) {
             return;
         }
+        if (!isReady()) {
+            readyFuture.thenRun(() -> zoomToRegion(REGION));
+            return;
+        }
         if (null != getSelectedCountry()) {
             setCountryFillAndStroke(getSelectedCountry(), getFillColor(), getStrokeColor());
         }
@@ -798,30 +1775,127 @@ public class World extends Region {
     }
 
     public static double[] latLonToXY(final double LATITUDE, final double LONGITUDE) {
-        double x = (LONGITUDE + 180) * (PREFERRED_WIDTH / 360) + MAP_OFFSET_X;
-        double y = (PREFERRED_HEIGHT / 2) - (PREFERRED_WIDTH * (Math.log(Math.tan((Math.PI / 4) + (Math.toRadians(LATITUDE) / 2)))) / (2 * Math.PI)) + MAP_OFFSET_Y;
-        return new double[]{x, y};
+        return new double[]{ longitudeToX(LONGITUDE), latitudeToY(LATITUDE) };
+    }
+
+    /**
+     * @param LONGITUDE the longitude
+     * @return the x coordinate in map space
+     */
+    public static double longitudeToX(final double LONGITUDE) {
+        return (LONGITUDE + 180) * X_SCALE + MAP_OFFSET_X;
+    }
+
+    /**
+     * @param LATITUDE the latitude
+     * @return the y coordinate in map space (mercator projection)
+     */
+    public static double latitudeToY(final double LATITUDE) {
+        // ln(tan(pi/4 + lat/2)) == 0.5 * ln((1 + sin(lat)) / (1 - sin(lat))), which needs no tan
+        double sin = Math.max(-MAX_SIN_LATITUDE, Math.min(MAX_SIN_LATITUDE, Math.sin(Math.toRadians(LATITUDE))));
+        return (PREFERRED_HEIGHT / 2) - Y_SCALE * 0.5 * Math.log((1 + sin) / (1 - sin)) + MAP_OFFSET_Y;
+    }
+
+    /**
+     * Projects all coordinates into map space without allocating, large arrays are split
+     * up into chunks that are projected in parallel.
+     * @param LATITUDES  the latitudes
+     * @param LONGITUDES the longitudes
+     * @param X          receives the x coordinates, has to be at least as long as the latitudes
+     * @param Y          receives the y coordinates, has to be at least as long as the latitudes
+     */
+    public static void project(final double[] LATITUDES, final double[] LONGITUDES, final double[] X, final double[] Y) {
+        final int LENGTH = LATITUDES.length;
+        if (LONGITUDES.length < LENGTH || X.length < LENGTH || Y.length < LENGTH) {
+            throw new IllegalArgumentException("The arrays must be at least as long as the latitudes");
+        }
+        if (LENGTH < PARALLEL_PROJECTION_THRESHOLD) {
+            project(LATITUDES, LONGITUDES, X, Y, 0, LENGTH);
+            return;
+        }
+        final int CHUNK = PARALLEL_PROJECTION_THRESHOLD / 4;
+        IntStream.range(0, (LENGTH + CHUNK - 1) / CHUNK).parallel().forEach(chunk -> project(LATITUDES, LONGITUDES, X, Y, chunk * CHUNK, Math.min(LENGTH, (chunk + 1) * CHUNK)));
+    }
+
+    private static void project(final double[] LATITUDES, final double[] LONGITUDES, final double[] X, final double[] Y, final int FROM, final int TO) {
+        final double OFFSET_X = 180 * X_SCALE + MAP_OFFSET_X;
+        final double OFFSET_Y = (PREFERRED_HEIGHT / 2) + MAP_OFFSET_Y;
+        final double TO_RAD   = Math.PI / 180;
+        final double SCALE_Y  = Y_SCALE * 0.5;
+        // separate loops, the first one has no calls and can be vectorized by the JIT
+        for (int i = FROM ; i < TO ; i++) {
+            X[i] = LONGITUDES[i] * X_SCALE + OFFSET_X;
+        }
+        for (int i = FROM ; i < TO ; i++) {
+            double sin = Math.max(-MAX_SIN_LATITUDE, Math.min(MAX_SIN_LATITUDE, Math.sin(LATITUDES[i] * TO_RAD)));
+            Y[i] = OFFSET_Y - SCALE_Y * Math.log((1 + sin) / (1 - sin));
+        }
+    }
+
+    /**
+     * Inverse of {@link #latLonToXY(double, double)}.
+     * @param X x coordinate in map space
+     * @param Y y coordinate in map space
+     * @return the latitude and longitude
+     */
+    public static double[] xyToLatLon(final double X, final double Y) {
+        return new double[]{ yToLatitude(Y), xToLongitude(X) };
+    }
+
+    public static double xToLongitude(final double X) {
+        return (X - MAP_OFFSET_X) / X_SCALE - 180;
+    }
+
+    public static double yToLatitude(final double Y) {
+        return Math.toDegrees(Math.atan(Math.sinh(((PREFERRED_HEIGHT / 2) + MAP_OFFSET_Y - Y) / Y_SCALE)));
+    }
+
+    /**
+     * Inverse of {@link #project(double[], double[], double[], double[])}.
+     * @param X          the x coordinates in map space
+     * @param Y          the y coordinates in map space
+     * @param LATITUDES  receives the latitudes, has to be at least as long as the x coordinates
+     * @param LONGITUDES receives the longitudes, has to be at least as long as the x coordinates
+     */
+    public static void unproject(final double[] X, final double[] Y, final double[] LATITUDES, final double[] LONGITUDES) {
+        final int LENGTH = X.length;
+        if (Y.length < LENGTH || LATITUDES.length < LENGTH || LONGITUDES.length < LENGTH) {
+            throw new IllegalArgumentException("The arrays must be at least as long as the x coordinates");
+        }
+        for (int i = 0 ; i < LENGTH ; i++) {
+            LONGITUDES[i] = xToLongitude(X[i]);
+            LATITUDES[i]  = yToLatitude(Y[i]);
+        }
+    }
+
+    /**
+     * @param SCENE_X x coordinate in the scene, e.g. of a mouse event
+     * @param SCENE_Y y coordinate in the scene, e.g. of a mouse event
+     * @return the latitude and longitude at the given position of the zoomed and panned map
+     */
+    public double[] sceneToLatLon(final double SCENE_X, final double SCENE_Y) {
+        Point2D point = pane.sceneToLocal(SCENE_X, SCENE_Y);
+        return xyToLatLon(point.getX(), point.getY());
     }
 
     private double[] getBounds(final Country... COUNTRIES) {
         return getBounds(Arrays.asList(COUNTRIES));
     }
 
-    private double[] getBounds(final List<Country> COUNTRIES) {
+    double[] getBounds(final List<Country> COUNTRIES) {
         double upperLeftX = PREFERRED_WIDTH;
         double upperLeftY = PREFERRED_HEIGHT;
         double lowerRightX = 0;
         double lowerRightY = 0;
         for (Country country : COUNTRIES) {
-            List<CountryPath> paths = countryPaths.get(country.getName());
-            for (int i = 0; i < paths.size(); i++) {
-                CountryPath path = paths.get(i);
-                Bounds bounds = path.getLayoutBounds();
-                upperLeftX = Math.min(bounds.getMinX(), upperLeftX);
-                upperLeftY = Math.min(bounds.getMinY(), upperLeftY);
-                lowerRightX = Math.max(bounds.getMaxX(), lowerRightX);
-                lowerRightY = Math.max(bounds.getMaxY(), lowerRightY);
+            CountryGeometry countryGeometry = getCountryGeometry(country);
+            if (null == countryGeometry) {
+                continue;
             }
+            upperLeftX = Math.min(countryGeometry.getMinX(), upperLeftX);
+            upperLeftY = Math.min(countryGeometry.getMinY(), upperLeftY);
+            lowerRightX = Math.max(countryGeometry.getMaxX(), lowerRightX);
+            lowerRightY = Math.max(countryGeometry.getMaxY(), lowerRightY);
         }
         return new double[]{upperLeftX, upperLeftY, lowerRightX, lowerRightY};
     }
@@ -837,10 +1911,10 @@ public class World extends Region {
         double sf = 1.0;
         switch (orientation) {
             case VERTICAL:
-                sf = clamp(1.0, 10.0, 1 / (areaHeight / height));
+                sf = clamp(1.0, MAX_SCALE_FACTOR, 1 / (areaHeight / height));
                 break;
             case HORIZONTAL:
-                sf = clamp(1.0, 10.0, 1 / (areaWidth / width));
+                sf = clamp(1.0, MAX_SCALE_FACTOR, 1 / (areaWidth / width));
                 break;
         }
 
@@ -864,15 +1938,22 @@ public class World extends Region {
 
     private void handleMouseEvent(final MouseEvent EVENT, final EventHandler<MouseEvent> HANDLER) {
         final CountryPath COUNTRY_PATH = (CountryPath) EVENT.getSource();
-        final String COUNTRY_NAME = COUNTRY_PATH.getName();
-        final Country COUNTRY = Country.valueOf(COUNTRY_NAME);
-        final List<CountryPath> PATHS = countryPaths.get(COUNTRY_NAME);
+        final Country COUNTRY = COUNTRY_PATH.getCountry();
+        final List<CountryPath> PATHS = countryPaths.get(COUNTRY);
 
         final EventType TYPE = EVENT.getEventType();
+        if (sharedTooltip && RenderMode.NODES == renderMode) {
+            if (MOUSE_ENTERED == TYPE) {
+                tooltip.setText(getTooltipText(COUNTRY));
+                Tooltip.install(COUNTRY_PATH, tooltip);
+            } else if (MOUSE_EXITED == TYPE) {
+                Tooltip.uninstall(COUNTRY_PATH, tooltip);
+            }
+        }
         if (MOUSE_ENTERED == TYPE) {
             if (isHoverEnabled()) {
                 Color color = isSelectionEnabled() && COUNTRY.equals(getSelectedCountry()) ? getSelectedColor() : getHoverColor();
-                for (SVGPath path : PATHS) {
+                for (CountryPath path : PATHS) {
                     path.setFill(color);
                 }
             }
@@ -883,14 +1964,14 @@ public class World extends Region {
                     setSelectedCountry(COUNTRY);
                     color = getSelectedColor();
                 } else {
-                    color = null == getSelectedCountry().getColor() ? getFillColor() : getSelectedCountry().getColor();
+                    color = getCountryColor(getSelectedCountry());
                 }
-                for (SVGPath path : countryPaths.get(getSelectedCountry().getName())) {
+                for (CountryPath path : getPaths(getSelectedCountry())) {
                     path.setFill(color);
                 }
             } else {
                 if (isHoverEnabled()) {
-                    for (SVGPath path : PATHS) {
+                    for (CountryPath path : PATHS) {
                         path.setFill(getPressedColor());
                     }
                 }
@@ -900,7 +1981,7 @@ public class World extends Region {
             if (isSelectionEnabled()) {
                 if (formerSelectedCountry == COUNTRY) {
                     setSelectedCountry(null);
-                    color = null == COUNTRY.getColor() ? getFillColor() : COUNTRY.getColor();
+                    color = getCountryColor(COUNTRY);
                 } else {
                     setSelectedCountry(COUNTRY);
                     color = getSelectedColor();
@@ -910,15 +1991,15 @@ public class World extends Region {
                 color = getHoverColor();
             }
             if (isHoverEnabled()) {
-                for (SVGPath path : PATHS) {
+                for (CountryPath path : PATHS) {
                     path.setFill(color);
                 }
             }
         } else if (MOUSE_EXITED == TYPE) {
             if (isHoverEnabled()) {
                 Color color = isSelectionEnabled() && COUNTRY.equals(getSelectedCountry()) ? getSelectedColor() : getFillColor();
-                for (SVGPath path : PATHS) {
-                    path.setFill(null == COUNTRY.getColor() || COUNTRY == getSelectedCountry() ? color : COUNTRY.getColor());
+                for (CountryPath path : PATHS) {
+                    path.setFill(null == dataModel.getSnapshot().getColor(COUNTRY) || COUNTRY == getSelectedCountry() ? color : getCountryColor(COUNTRY));
                 }
             }
         }
@@ -928,18 +2009,53 @@ public class World extends Region {
         }
     }
 
-    private void setFillAndStroke() {
-        countryPaths.keySet().forEach(name -> {
-            Country country = Country.valueOf(name);
-            setCountryFillAndStroke(country, null == country.getColor() ? getFillColor() : country.getColor(), getStrokeColor());
-        });
+    void setFillAndStroke() {
+        countryPaths.keySet().forEach(country -> setCountryFillAndStroke(country, getCountryColor(country), getStrokeColor()));
     }
 
     private void setCountryFillAndStroke(final Country COUNTRY, final Color FILL, final Color STROKE) {
-        List<CountryPath> paths = countryPaths.get(COUNTRY.getName());
+        List<CountryPath> paths = getPaths(COUNTRY);
         for (CountryPath path : paths) {
-            path.setFill(FILL);
-            path.setStroke(STROKE);
+            // equal colors would still invalidate the properties
+            if (!FILL.equals(path.getFill())) {
+                path.setFill(FILL);
+            }
+            if (!STROKE.equals(path.getStroke())) {
+                path.setStroke(STROKE);
+            }
+        }
+    }
+
+    private String getTooltipText(final Country COUNTRY) {
+        return null == tooltipTextProvider ? COUNTRY.getDisplayName() : tooltipTextProvider.apply(COUNTRY);
+    }
+
+    private Color getCountryColor(final Country COUNTRY) {
+        Color color = dataModel.getSnapshot().getColor(COUNTRY);
+        return null == color ? getFillColor() : color;
+    }
+
+    private void applySnapshot(final CountryDataModel.Snapshot SNAPSHOT) {
+        if (disposed) {
+            return;
+        }
+        for (Country country : SNAPSHOT.getChangedCountries()) {
+            // countries that have no paths yet will get their color when they are created
+            List<CountryPath> paths = countryPaths.get(country);
+            if (null == paths) {
+                continue;
+            }
+            Color fill;
+            if (isSelectionEnabled() && country == getSelectedCountry()) {
+                fill = getSelectedColor();
+            } else {
+                fill = null == SNAPSHOT.getColor(country) ? getFillColor() : SNAPSHOT.getColor(country);
+            }
+            for (CountryPath path : paths) {
+                if (!fill.equals(path.getFill())) {
+                    path.setFill(fill);
+                }
+            }
         }
     }
 
@@ -951,7 +2067,19 @@ public class World extends Region {
         if (null == getScene()) {
             return;
         }
-        Platform.runLater(() -> pane.getChildren().addAll(SHAPES));
+        runOnFxThread(() -> pane.getChildren().addAll(SHAPES));
+    }
+
+    /**
+     * Runs the given scene graph change right away on the FX application thread, e.g. when
+     * setLocations() removes and adds shapes, and defers it from any other thread.
+     */
+    private static void runOnFxThread(final Runnable RUNNABLE) {
+        if (Platform.isFxApplicationThread()) {
+            RUNNABLE.run();
+        } else {
+            Platform.runLater(RUNNABLE);
+        }
     }
 
     private double clamp(final double MIN, final double MAX, final double VALUE) {
@@ -964,28 +2092,459 @@ public class World extends Region {
         return VALUE;
     }
 
-    private Properties readProperties(final String FILE_NAME) {
-        final ClassLoader LOADER = Thread.currentThread().getContextClassLoader();
-        final Properties PROPERTIES = new Properties();
-        try (InputStream resourceStream = LOADER.getResourceAsStream(FILE_NAME)) {
-            PROPERTIES.load(resourceStream);
-        } catch (IOException exception) {
-            System.out.println(exception);
+    private Set<Country> createCountries() {
+        Set<Country> countries = EnumSet.noneOf(Country.class);
+        if (null == region) {
+            geometry.getNames().forEach(name -> countries.add(Country.valueOf(name)));
+            return countries;
+        }
+        for (Country country : region.getCountries()) {
+            if (geometry.contains(country.getName())) {
+                countries.add(country);
+            }
+        }
+        return countries;
+    }
+
+    private List<CountryPath> getPaths(final Country COUNTRY) {
+        List<CountryPath> pathList = countryPaths.get(COUNTRY);
+        if (null != pathList) {
+            return pathList;
+        }
+        if (!countries.contains(COUNTRY)) {
+            return Collections.emptyList();
+        }
+        return createPaths(COUNTRY, geometry.get(COUNTRY.getName()));
+    }
+
+    private List<CountryPath> createPaths(final Country COUNTRY, final CountryGeometry GEOMETRY) {
+        List<CountryPath> pathList = new ArrayList<>(GEOMETRY.getPaths().size());
+        for (PathGeometry path : GEOMETRY.getPaths()) {
+            pathList.add(createPath(COUNTRY, path));
+        }
+        countryPaths.put(COUNTRY, pathList);
+        if (RenderMode.NODES != renderMode) {
+            requestRedraw();
+            return pathList;
+        }
+        // countries are kept below the location shapes
+        pane.getChildren().addAll(countryNodeCount, pathList);
+        countryNodeCount += pathList.size();
+        return pathList;
+    }
+
+    private CountryPath createPath(final Country COUNTRY, final PathGeometry GEOMETRY) {
+        CountryPath countryPath = new CountryPath(COUNTRY, GEOMETRY, !sharedTooltip);
+        countryPath.setFill(getCountryColor(COUNTRY));
+        countryPath.setStroke(getStrokeColor());
+        countryPath.setStrokeWidth(STROKE_WIDTH);
+        if (RenderMode.NODES != renderMode) {
+            // the path is only the model of the canvas or tiles, redraw whenever it changes
+            InvalidationListener listener = RenderMode.TILES == renderMode ? o -> tileLayer.invalidate(countryPath) : redrawListener;
+            countryPath.fillProperty().addListener(listener);
+            countryPath.strokeProperty().addListener(listener);
+            countryPath.visibleProperty().addListener(listener);
+            countryPath.getElements().addListener(listener);
+            return countryPath;
+        }
+        countryPath.setOnMouseEntered(new WeakEventHandler<>(_mouseEnterHandler));
+        countryPath.setOnMousePressed(new WeakEventHandler<>(_mousePressHandler));
+        countryPath.setOnMouseReleased(new WeakEventHandler<>(_mouseReleaseHandler));
+        countryPath.setOnMouseExited(new WeakEventHandler<>(_mouseExitHandler));
+        return countryPath;
+    }
+
+    private CountryGeometry getCountryGeometry(final Country COUNTRY) {
+        final String NAME = COUNTRY.getName();
+        if (countries.contains(COUNTRY)) {
+            return geometry.get(NAME);
+        }
+        if (!isAdaptiveResolution() || !isInRegion(COUNTRY)) {
+            return null;
+        }
+        if (null != detailGeometry) {
+            return detailGeometry.get(NAME);
         }
-        return PROPERTIES;
+        // country is only part of the detail tiers which are not in use right now
+        List<Resolution> tiers = getDetailResolutions();
+        if (tiers.isEmpty()) {
+            return null;
+        }
+        return acquireDetailTier(tiers.get(0)).get(NAME);
+    }
+
+    /**
+     * Detail tiers stay acquired once used until the adaptive resolution is disabled or the
+     * world is disposed, so swapping back and forth between tiers never reloads them.
+     */
+    private WorldGeometry acquireDetailTier(final Resolution TIER) {
+        return detailTiers.computeIfAbsent(TIER, GeometryCache::acquire);
     }
 
-    private Map<String, List<CountryPath>> createCountryPaths() {
-        Map<String, List<CountryPath>> countryPaths = new HashMap<>();
-        resolutionProperties.forEach((key, value) -> {
-            String name = key.toString();
-            List<CountryPath> pathList = new ArrayList<>();
-            for (String path : value.toString().split(";")) {
-                pathList.add(new CountryPath(name, path));
+    private void releaseDetailTiers() {
+        if (null != detailResolution) {
+            if (!disposed) {
+                showBaseResolution();
             }
-            countryPaths.put(name, pathList);
+            detailGeometry = null;
+            detailResolution = null;
+        }
+        detailTiers.keySet().forEach(GeometryCache::release);
+        detailTiers.clear();
+    }
+
+    private boolean isInRegion(final Country COUNTRY) {
+        return null == region || region.getCountries().contains(COUNTRY);
+    }
+
+    /**
+     * @return the resolutions that are finer than the resolution of this world in ascending order, HI_RES being the finest
+     */
+    private List<Resolution> getDetailResolutions() {
+        List<Resolution> tiers = new ArrayList<>();
+        if (Resolution.HI_RES == resolution) {
+            return tiers;
+        }
+        for (Resolution tier : Resolution.values()) {
+            if (tier.isSimplified() && tier.getZoom() > Math.max(1, resolution.getZoom())) {
+                tiers.add(tier);
+            }
+        }
+        tiers.add(Resolution.HI_RES);
+        return tiers;
+    }
+
+    private static int getDetailZoom(final Resolution TIER) {
+        return Resolution.HI_RES == TIER ? HI_RES_DETAIL_ZOOM : TIER.getZoom();
+    }
+
+    private Resolution selectDetailResolution(final double SCALE) {
+        Resolution selected = null;
+        for (Resolution tier : getDetailResolutions()) {
+            // hysteresis to avoid swapping back and forth around the zoom of a tier
+            boolean shown = null != detailResolution && getDetailZoom(tier) <= getDetailZoom(detailResolution);
+            double threshold = shown ? getDetailZoom(tier) * DETAIL_HYSTERESIS : getDetailZoom(tier);
+            if (SCALE >= threshold) {
+                selected = tier;
+            }
+        }
+        return selected;
+    }
+
+    private void updateViewport() {
+        materializeVisibleCountries();
+        updateLevelOfDetail();
+        if (RenderMode.NODES != renderMode) {
+            requestRedraw();
+        }
+        if (null != clusterLayer || null != markerLayer || null != storeLayer) {
+            requestLocationUpdate();
+        }
+        if (locationImages) {
+            // sharpen the icon images once the zoom crosses the next power of two
+            double outputScale = IconCache.getOutputScale(getRenderScale());
+            if (outputScale != locationOutputScale) {
+                locationOutputScale = outputScale;
+                locations.forEach((location, shape) -> setLocationImage(location, (Rectangle) shape));
+            }
+        }
+    }
+
+    private void requestLocationUpdate() {
+        if (locationUpdatePending) {
+            return;
+        }
+        locationUpdatePending = true;
+        Platform.runLater(() -> {
+            locationUpdatePending = false;
+            updateLocationLayers();
+        });
+    }
+
+    private void updateLocationLayers() {
+        if (null == clusterLayer && null == markerLayer && null == storeLayer) {
+            return;
+        }
+        Bounds visible = getVisibleArea();
+        Bounds area = null == visible ? new BoundingBox(0, 0, PREFERRED_WIDTH, PREFERRED_HEIGHT) : visible;
+        if (null != clusterLayer) {
+            clusterLayer.update(area, getRenderScale(), getLocationColor());
+        }
+        if (null != markerLayer) {
+            markerLayer.draw(area, getRenderScale(), locationIconCode, getLocationColor());
+        }
+        if (null != storeLayer) {
+            storeLayer.draw(area, getRenderScale(), locationIconCode, getLocationColor());
+        }
+    }
+
+    private void handleMarkerMouseEvent(final MouseEvent EVENT) {
+        final EventType<? extends MouseEvent> TYPE = EVENT.getEventType();
+        if (MOUSE_EXITED == TYPE && EVENT.getTarget() == pane) {
+            setHoveredLocation(null, EVENT);
+            return;
+        }
+        if (MOUSE_MOVED != TYPE && MOUSE_PRESSED != TYPE && MOUSE_RELEASED != TYPE) {
+            return;
+        }
+        Point2D point = pane.sceneToLocal(EVENT.getSceneX(), EVENT.getSceneY());
+        Location location = markerLayer.isVisible() ? markerLayer.pick(point.getX(), point.getY()) : null;
+        setHoveredLocation(location, EVENT);
+        if (null == location) {
+            return;
+        }
+        if (MOUSE_PRESSED == TYPE) {
+            fireLocationEvent(location.getMousePressHandler(), location, EVENT, MOUSE_PRESSED);
+            EVENT.consume();
+        } else if (MOUSE_RELEASED == TYPE) {
+            fireLocationEvent(location.getMouseReleaseHandler(), location, EVENT, MOUSE_RELEASED);
+            EVENT.consume();
+        }
+    }
+
+    private void setHoveredLocation(final Location LOCATION, final MouseEvent EVENT) {
+        if (LOCATION == hoveredLocation) {
+            return;
+        }
+        if (null != hoveredLocation) {
+            markerTooltip.hide();
+            fireLocationEvent(hoveredLocation.getMouseExitHandler(), hoveredLocation, EVENT, MOUSE_EXITED);
+        }
+        hoveredLocation = LOCATION;
+        if (null == LOCATION) {
+            return;
+        }
+        String tooltipText = LOCATION.getName().isEmpty() ? LOCATION.getInfo() : LOCATION.getInfo().isEmpty() ? LOCATION.getName() : LOCATION.getName() + "\n" + LOCATION.getInfo();
+        if (!tooltipText.isEmpty()) {
+            markerTooltip.setText(tooltipText);
+            markerTooltip.show(pane, EVENT.getScreenX() + 10, EVENT.getScreenY() + 10);
+        }
+        fireLocationEvent(LOCATION.getMouseEnterHandler(), LOCATION, EVENT, MOUSE_ENTERED);
+    }
+
+    private void fireLocationEvent(final EventHandler<MouseEvent> HANDLER, final Location LOCATION, final MouseEvent EVENT, final EventType<MouseEvent> TYPE) {
+        if (null != HANDLER && null != EVENT) {
+            HANDLER.handle(EVENT.copyFor(LOCATION, markerLayer, TYPE));
+        }
+    }
+
+    private double getRenderScale() {
+        Transform transform = pane.getLocalToSceneTransform();
+        return Math.max(1, Math.hypot(transform.getMxx(), transform.getMyx()));
+    }
+
+    private void requestRedraw() {
+        // coalesce all changes of a pulse into one redraw
+        if (redrawPending) {
+            return;
+        }
+        redrawPending = true;
+        Platform.runLater(() -> {
+            redrawPending = false;
+            drawCountries();
         });
-        return countryPaths;
+    }
+
+    private void drawCountries() {
+        if (disposed) {
+            return;
+        }
+        Bounds visible = getVisibleArea();
+        Bounds area = null == visible ? new BoundingBox(0, 0, PREFERRED_WIDTH, PREFERRED_HEIGHT) : visible;
+        double renderScale = getRenderScale();
+        if (RenderMode.CANVAS == renderMode) {
+            countryCanvas.draw(countryPaths.values(), area, renderScale, STROKE_WIDTH);
+        } else {
+            tileLayer.update(area, renderScale);
+        }
+    }
+
+    private void handleLayerMouseEvent(final MouseEvent EVENT) {
+        CountryPath path = null;
+        if (MOUSE_EXITED != EVENT.getEventType()) {
+            Point2D point = pane.sceneToLocal(EVENT.getSceneX(), EVENT.getSceneY());
+            path = CountryCanvas.pick(countryPaths.values(), point.getX(), point.getY());
+        }
+        // the handlers of the node based rendering expect the path as source
+        Country country = null == path ? null : path.getCountry();
+        Country hoveredCountry = null == hoveredPath ? null : hoveredPath.getCountry();
+        if (country != hoveredCountry) {
+            if (null != hoveredPath) {
+                _mouseExitHandler.handle(EVENT.copyFor(hoveredPath, hoveredPath, MOUSE_EXITED));
+                Tooltip.uninstall(countryLayer, tooltip);
+            }
+            hoveredPath = path;
+            if (null != path) {
+                tooltip.setText(getTooltipText(country));
+                Tooltip.install(countryLayer, tooltip);
+                _mouseEnterHandler.handle(EVENT.copyFor(path, path, MOUSE_ENTERED));
+            }
+        }
+        if (null == path) {
+            return;
+        }
+        if (MOUSE_PRESSED == EVENT.getEventType()) {
+            _mousePressHandler.handle(EVENT.copyFor(path, path));
+        } else if (MOUSE_RELEASED == EVENT.getEventType()) {
+            _mouseReleaseHandler.handle(EVENT.copyFor(path, path));
+        }
+    }
+
+    private Bounds getVisibleArea() {
+        if (null == getScene() || width <= 0 || height <= 0) {
+            return null;
+        }
+        Bounds viewport = null == getParent() ? new BoundingBox(0, 0, getScene().getWidth(), getScene().getHeight()) : getParent().localToScene(getParent().getLayoutBounds());
+        return pane.sceneToLocal(viewport);
+    }
+
+    private static boolean intersects(final Bounds BOUNDS, final CountryGeometry GEOMETRY) {
+        return BOUNDS.intersects(GEOMETRY.getMinX(), GEOMETRY.getMinY(), GEOMETRY.getMaxX() - GEOMETRY.getMinX(), GEOMETRY.getMaxY() - GEOMETRY.getMinY());
+    }
+
+    private void updateLevelOfDetail() {
+        if (!isReady() || disposed) {
+            return;
+        }
+        Resolution target = isAdaptiveResolution() ? selectDetailResolution(getScaleFactor()) : null;
+        if (target != detailResolution) {
+            if (null != detailResolution) {
+                showBaseResolution();
+            }
+            detailResolution = target;
+            detailGeometry = null == target ? null : acquireDetailTier(target);
+        }
+        if (null == detailResolution) {
+            return;
+        }
+        Bounds visible = getVisibleArea();
+        if (null == visible) {
+            return;
+        }
+        for (String name : detailGeometry.getNames()) {
+            Country country = Country.valueOf(name);
+            if (detailedCountries.contains(country) || !isInRegion(country)) {
+                continue;
+            }
+            // use the already decoded base outline for the visibility test if available
+            CountryGeometry base = countries.contains(country) ? geometry.get(name) : null;
+            CountryGeometry countryGeometry = null == base ? detailGeometry.get(name) : base;
+            if (intersects(visible, countryGeometry)) {
+                setCountryGeometry(country, null == base ? countryGeometry : detailGeometry.get(name));
+                detailedCountries.add(country);
+            }
+        }
+    }
+
+    private void showBaseResolution() {
+        for (Country country : detailedCountries) {
+            if (countries.contains(country)) {
+                setCountryGeometry(country, geometry.get(country.getName()));
+            } else {
+                // country only exists in the detail geometry
+                countryPaths.get(country).forEach(path -> path.setVisible(false));
+            }
+        }
+        detailedCountries.clear();
+    }
+
+    private void setCountryGeometry(final Country COUNTRY, final CountryGeometry GEOMETRY) {
+        List<CountryPath> pathList = countryPaths.get(COUNTRY);
+        if (null == pathList) {
+            createPaths(COUNTRY, GEOMETRY);
+            return;
+        }
+        List<PathGeometry> paths = GEOMETRY.getPaths();
+        for (int i = 0; i < paths.size(); i++) {
+            if (i < pathList.size()) {
+                pathList.get(i).setGeometry(paths.get(i));
+                pathList.get(i).setVisible(true);
+            } else {
+                CountryPath countryPath = createPath(COUNTRY, paths.get(i));
+                countryPath.setFill(pathList.get(0).getFill());
+                pathList.add(countryPath);
+                if (RenderMode.NODES == renderMode) {
+                    pane.getChildren().add(countryNodeCount++, countryPath);
+                }
+            }
+        }
+        for (int i = paths.size(); i < pathList.size(); i++) {
+            pathList.get(i).getElements().clear();
+            pathList.get(i).setVisible(false);
+        }
+    }
+
+    private void loadAsync(final Executor EXECUTOR) {
+        CompletableFuture.supplyAsync(() -> GeometryCache.acquire(resolution), EXECUTOR)
+                         .thenCompose(worldGeometry -> {
+                             if (lazyLoading) {
+                                 return CompletableFuture.completedFuture(worldGeometry);
+                             }
+                             Collection<String> names = null == region ? worldGeometry.getNames() : region.getCountries().stream().map(Country::getName).collect(Collectors.toList());
+                             return worldGeometry.preload(names, EXECUTOR, this::updateProgress).thenApply(v -> worldGeometry);
+                         })
+                         .whenComplete((worldGeometry, throwable) -> Platform.runLater(() -> {
+                             if (null != throwable) {
+                                 readyFuture.completeExceptionally(throwable);
+                             } else {
+                                 attachGeometry(worldGeometry);
+                             }
+                         }));
+    }
+
+    private void updateProgress(final double PROGRESS) {
+        loadingProgress = PROGRESS;
+        // coalesce the progress updates of the worker threads into one update per pulse
+        if (progressUpdatePending.compareAndSet(false, true)) {
+            Platform.runLater(() -> {
+                progressUpdatePending.set(false);
+                progress.set(loadingProgress);
+            });
+        }
+    }
+
+    private void attachGeometry(final WorldGeometry GEOMETRY) {
+        if (disposed) {
+            GeometryCache.release(resolution);
+            return;
+        }
+        geometry = GEOMETRY;
+        countries = createCountries();
+        if (!lazyLoading) {
+            countries.forEach(this::getPaths);
+        }
+        getChildren().remove(placeholder);
+        placeholder = null;
+        progress.set(1.0);
+        ready.set(true);
+
+        // apply all locations that have been added while loading in one batch
+        if (!pendingLocations.isEmpty() && null != markerLayer) {
+            locationIndex.addAll(pendingLocations);
+            pendingLocations.clear();
+            requestLocationUpdate();
+        } else if (!pendingLocations.isEmpty()) {
+            List<Location> pending = new ArrayList<>(pendingLocations);
+            pendingLocations.clear();
+            addLocationBatch(pending);
+        }
+        updateViewport();
+        readyFuture.complete(World.this);
+    }
+
+    private void materializeVisibleCountries() {
+        if (!lazyLoading) {
+            return;
+        }
+        Bounds visible = getVisibleArea();
+        if (null == visible) {
+            return;
+        }
+        for (Country country : countries) {
+            if (!countryPaths.containsKey(country) && intersects(visible, geometry.get(country.getName()))) {
+                getPaths(country);
+            }
+        }
     }
 
     // ******************** Style related *************************************
@@ -1029,6 +2588,30 @@ public class World extends Region {
             group.relocate((getWidth() - width) * 0.5, (getHeight() - height) * 0.5);
 
             pane.setCache(false);
+
+            if (null != placeholder) {
+                placeholder.autosize();
+                placeholder.relocate((getWidth() - placeholder.getLayoutBounds().getWidth()) * 0.5, (getHeight() - placeholder.getLayoutBounds().getHeight()) * 0.5);
+            }
+
+            updateViewport();
+        }
+    }
+
+
+    // ******************** Inner Classes *************************************
+    /**
+     * The font icons and tooltip texts of locations that have been created off the FX application thread.
+     */
+    private static class PreparedShapes {
+        private final Shape[]  shapes;
+        private final String[] tooltipTexts;
+
+
+        // ******************** Constructors **********************************
+        PreparedShapes(final int SIZE) {
+            shapes       = new Shape[SIZE];
+            tooltipTexts = new String[SIZE];
         }
     }
 }
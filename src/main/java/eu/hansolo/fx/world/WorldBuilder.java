@@ -16,13 +16,16 @@
 
 package eu.hansolo.fx.world;
 
+import eu.hansolo.fx.world.World.RenderMode;
 import eu.hansolo.fx.world.World.Resolution;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.LongProperty;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.Property;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleDoubleProperty;
+import javafx.beans.property.SimpleLongProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.event.EventHandler;
 import javafx.geometry.Dimension2D;
@@ -32,6 +35,10 @@ import javafx.scene.paint.Color;
 import org.kordamp.ikonli.Ikon;
 
 import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
 
 
 /**
@@ -40,6 +47,11 @@ import java.util.HashMap;
 public class WorldBuilder<B extends WorldBuilder<B>> {
     private HashMap<String, Property> properties = new HashMap<>();
     private Resolution                resolution = Resolution.HI_RES;
+    private CRegion                   region;
+    private boolean                   lazyLoading;
+    private Executor                  executor   = ForkJoinPool.commonPool();
+    private RenderMode                renderMode = RenderMode.NODES;
+    private boolean                   sharedTooltip;
 
 
     // ******************** Constructors **************************************
@@ -54,6 +66,55 @@ public class WorldBuilder<B extends WorldBuilder<B>> {
         return (B)this;
     }
 
+    public final B region(final CRegion REGION) {
+        region = REGION;
+        return (B)this;
+    }
+
+    public final B lazyLoading(final boolean LAZY_LOADING) {
+        lazyLoading = LAZY_LOADING;
+        return (B)this;
+    }
+
+    public final B executor(final Executor EXECUTOR) {
+        executor = EXECUTOR;
+        return (B)this;
+    }
+
+    /**
+     * @param RENDER_MODE CANVAS to draw the countries into a canvas which keeps
+     *                    the scene graph small, e.g. on embedded devices,
+     *                    TILES to show them as raster tiles that are cached per zoom level
+     */
+    public final B renderMode(final RenderMode RENDER_MODE) {
+        renderMode = RENDER_MODE;
+        return (B)this;
+    }
+
+    /**
+     * @param BYTES the budget of the tile cache in bytes, only used with the TILES render mode
+     */
+    public final B tileCacheBudget(final long BYTES) {
+        properties.put("tileCacheBudget", new SimpleLongProperty(BYTES));
+        return (B)this;
+    }
+
+    /**
+     * @param SHARED_TOOLTIP if true one tooltip follows the hovered country instead of installing a tooltip on every path
+     */
+    public final B sharedTooltip(final boolean SHARED_TOOLTIP) {
+        sharedTooltip = SHARED_TOOLTIP;
+        return (B)this;
+    }
+
+    /**
+     * @param PROVIDER returns the tooltip text of a country, only used with a shared tooltip
+     */
+    public final B tooltipTextProvider(final Function<Country, String> PROVIDER) {
+        properties.put("tooltipTextProvider", new SimpleObjectProperty<>(PROVIDER));
+        return (B)this;
+    }
+
     public final B backgroundColor(final Color COLOR) {
         properties.put("backgroundColor", new SimpleObjectProperty<>(COLOR));
         return (B)this;
@@ -104,6 +165,11 @@ public class WorldBuilder<B extends WorldBuilder<B>> {
         return (B)this;
     }
 
+    public final B adaptiveResolution(final boolean ENABLED) {
+        properties.put("adaptiveResolution", new SimpleBooleanProperty(ENABLED));
+        return (B)this;
+    }
+
     public final B mouseEnterHandler(final EventHandler<MouseEvent> HANDLER) {
         properties.put("mouseEnterHandler", new SimpleObjectProperty(HANDLER));
         return (B)this;
@@ -134,6 +200,38 @@ public class WorldBuilder<B extends WorldBuilder<B>> {
         return (B)this;
     }
 
+    /**
+     * @param CLUSTERING if true locations that are close to each other are merged into count bubbles
+     */
+    public final B locationClustering(final boolean CLUSTERING) {
+        properties.put("locationClustering", new SimpleBooleanProperty(CLUSTERING));
+        return (B)this;
+    }
+
+    /**
+     * @param IMAGES if true the locations share cached images of their icons instead of a FontIcon per location
+     */
+    public final B locationImages(final boolean IMAGES) {
+        properties.put("locationImages", new SimpleBooleanProperty(IMAGES));
+        return (B)this;
+    }
+
+    /**
+     * @param CANVAS if true locations are drawn on one canvas instead of one node per location
+     */
+    public final B locationCanvas(final boolean CANVAS) {
+        properties.put("locationCanvas", new SimpleBooleanProperty(CANVAS));
+        return (B)this;
+    }
+
+    /**
+     * @param STORE a columnar store of points that are drawn in addition to the locations
+     */
+    public final B locationStore(final LocationStore STORE) {
+        properties.put("locationStore", new SimpleObjectProperty<>(STORE));
+        return (B)this;
+    }
+
     public final B locationIconCode(final Ikon ICON_CODE) {
         properties.put("locationIconCode", new SimpleObjectProperty<>(ICON_CODE));
         return (B)this;
@@ -212,8 +310,29 @@ public class WorldBuilder<B extends WorldBuilder<B>> {
     }
 
     public final World build() {
-        final World CONTROL = new World(resolution);
+        return applyProperties(new World(resolution, region, lazyLoading, executor, false, renderMode, sharedTooltip));
+    }
+
+    /**
+     * Creates a world that loads its country outlines in the background and shows
+     * a placeholder until they are ready. Locations and colors that are set in the
+     * meantime are applied in one batch when the map is ready.
+     * @return a world that is not ready yet
+     */
+    public final World buildDeferred() {
+        return applyProperties(new World(resolution, region, lazyLoading, executor, true, renderMode, sharedTooltip));
+    }
+
+    /**
+     * Loads the country outlines in the background.
+     * Use {@link #buildDeferred()} to get access to the world (e.g. its progress) before it is ready.
+     * @return a future that will be completed on the FX application thread when the world is ready
+     */
+    public final CompletableFuture<World> buildAsync() {
+        return buildDeferred().readyFuture();
+    }
 
+    private World applyProperties(final World CONTROL) {
         for (String key : properties.keySet()) {
             if ("prefSize".equals(key)) {
                 Dimension2D dim = ((ObjectProperty<Dimension2D>) properties.get(key)).get();
@@ -270,6 +389,14 @@ public class WorldBuilder<B extends WorldBuilder<B>> {
                 CONTROL.setSelectionEnabled(((BooleanProperty) properties.get(key)).get());
             } else if ("zoomEnabled".equals(key)) {
                 CONTROL.setZoomEnabled(((BooleanProperty) properties.get(key)).get());
+            } else if ("tileCacheBudget".equals(key)) {
+                if (null != CONTROL.getTileCache()) {
+                    CONTROL.getTileCache().setBudget(((LongProperty) properties.get(key)).get());
+                }
+            } else if ("tooltipTextProvider".equals(key)) {
+                CONTROL.setTooltipTextProvider(((ObjectProperty<Function<Country, String>>) properties.get(key)).get());
+            } else if ("adaptiveResolution".equals(key)) {
+                CONTROL.setAdaptiveResolution(((BooleanProperty) properties.get(key)).get());
             } else if ("mouseEnterHandler".equals(key)) {
                 CONTROL.setMouseEnterHandler(((ObjectProperty<EventHandler<MouseEvent>>) properties.get(key)).get());
             } else if ("mousePressHandler".equals(key)) {
@@ -282,6 +409,14 @@ public class WorldBuilder<B extends WorldBuilder<B>> {
                 CONTROL.addLocations(((ObjectProperty<Location[]>) properties.get(key)).get());
             } else if ("showLocations".equals(key)) {
                 CONTROL.showLocations(((BooleanProperty) properties.get(key)).get());
+            } else if ("locationClustering".equals(key)) {
+                CONTROL.setLocationClustering(((BooleanProperty) properties.get(key)).get());
+            } else if ("locationImages".equals(key)) {
+                CONTROL.setLocationImages(((BooleanProperty) properties.get(key)).get());
+            } else if ("locationCanvas".equals(key)) {
+                CONTROL.setLocationCanvas(((BooleanProperty) properties.get(key)).get());
+            } else if ("locationStore".equals(key)) {
+                CONTROL.setLocationStore(((ObjectProperty<LocationStore>) properties.get(key)).get());
             } else if ("locationIconCode".equals(key)) {
                 CONTROL.setLocationIconCode(((ObjectProperty<Ikon>) properties.get(key)).get());
             }
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2016 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.world;
+
+import eu.hansolo.fx.world.World.Resolution;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleConsumer;
+
+
+/**
+ * The country outlines of one resolution. Countries are decoded on first
+ * access and kept afterwards, all methods are thread safe.
+ * Instances are shared via the {@link GeometryCache}.
+ */
+public class WorldGeometry {
+    private static final String                                     RESOURCE_PATH  = "eu/hansolo/fx/world/";
+    private static final int                                        MIN_CHUNK_SIZE = 64;
+    private        final Resolution                                 resolution;
+    private        final GeometryReader                             reader;
+    private        final Properties                                 properties;
+    private        final double                                     tolerance;
+    private        final List<String>                               names;
+    private        final ConcurrentHashMap<String, CountryGeometry> countries;
+    int                                                             references;
+
+
+    // ******************** Constructors **************************************
+    private WorldGeometry(final Resolution RESOLUTION, final GeometryReader READER, final Properties PROPERTIES, final double TOLERANCE) {
+        resolution = RESOLUTION;
+        reader     = READER;
+        properties = PROPERTIES;
+        tolerance  = TOLERANCE;
+        names      = Collections.unmodifiableList(null == READER ? new ArrayList<>(new TreeSet<>(PROPERTIES.stringPropertyNames())) : READER.getNames());
+        countries  = new ConcurrentHashMap<>(names.size() * 2);
+    }
+
+
+    // ******************** Methods *******************************************
+    /**
+     * Loads the geometry of the given resolution. Prefers the precompiled binary
+     * geometry, the properties are only parsed if it is missing (e.g. when not built by gradle).
+     * Missing simplified resolutions are simplified from HI_RES on the fly.
+     * @param RESOLUTION the resolution to load
+     * @return the geometry of the given resolution
+     */
+    public static WorldGeometry load(final Resolution RESOLUTION) {
+        GeometryReader reader = GeometryReader.open(RESOURCE_PATH + RESOLUTION.getFileName() + ".geo");
+        if (null != reader) { return new WorldGeometry(RESOLUTION, reader, null, 0); }
+
+        final Resolution SOURCE    = RESOLUTION.isSimplified() ? Resolution.HI_RES : RESOLUTION;
+        final double     TOLERANCE = RESOLUTION.isSimplified() ? GeometrySimplifier.getTolerance(RESOLUTION.getZoom()) : 0;
+        reader = GeometryReader.open(RESOURCE_PATH + SOURCE.getFileName() + ".geo");
+        if (null != reader) { return new WorldGeometry(RESOLUTION, reader, null, TOLERANCE); }
+        return new WorldGeometry(RESOLUTION, null, readProperties(RESOURCE_PATH + SOURCE.getFileName() + ".properties"), TOLERANCE);
+    }
+
+    public Resolution getResolution() { return resolution; }
+
+    /**
+     * @return the iso codes of all countries that are part of this geometry
+     */
+    public List<String> getNames() { return names; }
+
+    public boolean contains(final String NAME) { return null == reader ? properties.containsKey(NAME) : reader.contains(NAME); }
+
+    /**
+     * @param NAME the iso code of the country
+     * @return the geometry of the given country or null if it is not part of this geometry
+     */
+    public CountryGeometry get(final String NAME) {
+        CountryGeometry countryGeometry = countries.get(NAME);
+        if (null != countryGeometry) { return countryGeometry; }
+        if (!contains(NAME)) { return null; }
+        // decode outside of the map to not block other countries while parsing in parallel
+        countryGeometry = decode(NAME);
+        CountryGeometry existing = countries.putIfAbsent(NAME, countryGeometry);
+        return null == existing ? countryGeometry : existing;
+    }
+
+    /**
+     * Decodes the given countries on the given executor, see {@link #preload(Collection, Executor, DoubleConsumer)}.
+     * @param NAMES    the iso codes of the countries to decode
+     * @param EXECUTOR the executor to use, e.g. ForkJoinPool.commonPool()
+     * @return a future that completes when all countries have been decoded
+     */
+    public CompletableFuture<Void> preload(final Collection<String> NAMES, final Executor EXECUTOR) {
+        return preload(NAMES, EXECUTOR, null);
+    }
+    /**
+     * Decodes the given countries on the given executor. Decoding a single country
+     * takes only a few microseconds, so the countries are split into at most one chunk
+     * per processor of at least MIN_CHUNK_SIZE countries instead of one task per country.
+     * With a single chunk all countries are decoded sequentially in one task.
+     * @param NAMES    the iso codes of the countries to decode
+     * @param EXECUTOR the executor to use, e.g. ForkJoinPool.commonPool()
+     * @param PROGRESS if not null it will be called from the worker threads with the fraction of decoded countries
+     * @return a future that completes when all countries have been decoded
+     */
+    public CompletableFuture<Void> preload(final Collection<String> NAMES, final Executor EXECUTOR, final DoubleConsumer PROGRESS) {
+        List<String> missing = new ArrayList<>(NAMES.size());
+        for (String name : NAMES) {
+            if (countries.containsKey(name) || !contains(name)) continue;
+            missing.add(name);
+        }
+        if (null != PROGRESS) { PROGRESS.accept(missing.isEmpty() ? 1.0 : 0.0); }
+        if (missing.isEmpty()) { return CompletableFuture.completedFuture(null); }
+
+        final AtomicInteger           DONE      = new AtomicInteger();
+        int                           chunks    = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), missing.size() / MIN_CHUNK_SIZE));
+        int                           chunkSize = (missing.size() + chunks - 1) / chunks;
+        List<CompletableFuture<Void>> futures   = new ArrayList<>(chunks);
+        for (int start = 0 ; start < missing.size() ; start += chunkSize) {
+            List<String> chunk = missing.subList(start, Math.min(missing.size(), start + chunkSize));
+            futures.add(CompletableFuture.runAsync(() -> {
+                for (String name : chunk) {
+                    get(name);
+                    if (null != PROGRESS) { PROGRESS.accept(DONE.incrementAndGet() / (double) missing.size()); }
+                }
+            }, EXECUTOR));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+    }
+
+    private CountryGeometry decode(final String NAME) {
+        List<PathGeometry> paths;
+        if (null != reader) {
+            paths = reader.read(NAME);
+        } else {
+            paths = new ArrayList<>();
+            for (String path : properties.getProperty(NAME).split(";")) {
+                paths.add(PathGeometry.parse(path));
+            }
+        }
+        if (tolerance > 0) {
+            // on the fly simplification does not know the neighbours so no points are locked
+            paths = GeometrySimplifier.simplify(paths, tolerance, Collections.emptySet());
+        }
+        return new CountryGeometry(NAME, paths);
+    }
+
+    private static Properties readProperties(final String FILE_NAME) {
+        final ClassLoader LOADER     = Thread.currentThread().getContextClassLoader();
+        final Properties  PROPERTIES = new Properties();
+        try (InputStream resourceStream = LOADER.getResourceAsStream(FILE_NAME)) {
+            PROPERTIES.load(resourceStream);
+        } catch (IOException exception) {
+            System.out.println(exception);
+        }
+        return PROPERTIES;
+    }
+}